@@ -5,6 +5,7 @@ import castle.comp3021.assignment.player.ConsolePlayer;
 import castle.comp3021.assignment.protocol.Action;
 import castle.comp3021.assignment.protocol.Game;
 import castle.comp3021.assignment.protocol.Piece;
+import castle.comp3021.assignment.protocol.PieceWorker;
 import castle.comp3021.assignment.protocol.Place;
 import castle.comp3021.assignment.protocol.exception.ActionException;
 
@@ -32,10 +33,10 @@ public class PausePieceAction extends Action {
      * <p>
      * Related methods:
      * - {@link Piece#pause()}
-     * - {@link Thread#interrupt()}
+     * - {@link castle.comp3021.assignment.protocol.PieceWorker#wake()}
      * <p>
-     * - The piece thread can be get by
-     * {@link castle.comp3021.assignment.protocol.Configuration#getPieceThread(Piece)}
+     * - The piece worker can be get by
+     * {@link castle.comp3021.assignment.protocol.Configuration#getPieceWorker(Piece)}
      */
     @Override
     public void perform() throws ActionException {
@@ -61,9 +62,9 @@ public class PausePieceAction extends Action {
                     + " does not belong to computer player, thus can not be paused");
         }
         //correctly getting computer piece
-        Thread targetThread = game.getConfiguration().getPieceThread(targetPiece);
+        PieceWorker targetWorker = game.getConfiguration().getPieceWorker(targetPiece);
         targetPiece.pause();
-        targetThread.interrupt();
+        targetWorker.wake();
     }
 
     @Override
@@ -2,10 +2,13 @@ package castle.comp3021.assignment.piece;
 
 import castle.comp3021.assignment.protocol.*;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -15,19 +18,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * @see <a href='https://en.wikipedia.org/wiki/Xiangqi#Cannon'>Wikipedia</a>
  */
 public class Archer extends Piece {
-    static class InvalidMove extends Move {
-        public InvalidMove() {
-            super(-1, -1, -1, -1);
-        }
-    }
-
     /**
-     * A BlockingDeque containing the candidate move
+     * The four rays an archer moves along, in the form of {stepX, stepY}
      */
-    private final BlockingDeque<Move> candidateMoveQueue;
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
 
     /**
-     * A LinkedBlockingDeque storing the parameters {@link Game} and {@link Place}
+     * A LinkedBlockingDeque storing the parameters {@link Game} and {@link Place}, and the {@link CompletableFuture}
+     * completed with the candidate move.
      * When calculateMoveParametersQueue is empty, the current piece thread should be waiting
      * until parameters {@link Game} and {@link Place} are passed in, the thread starts calculate the candidate move.
      */
@@ -35,13 +33,11 @@ public class Archer extends Piece {
 
     public Archer(Player player, Behavior behavior) {
         super(player, behavior);
-        this.candidateMoveQueue = new LinkedBlockingDeque<>();
         this.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
     }
 
     public Archer(Player player) {
         super(player);
-        this.candidateMoveQueue = new LinkedBlockingDeque<>();
         this.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
     }
 
@@ -50,77 +46,104 @@ public class Archer extends Piece {
         return 'A';
     }
 
+    /**
+     * Returns the available moves of the archer.
+     * Each of the four rays from the source is walked only once: empty squares before the first piece (the "screen")
+     * are quiet moves, and the first piece beyond the screen can be captured if it belongs to the enemy.
+     * This is equivalent to checking every square on the rank and file with {@link ArcherMoveRule} and the global rules.
+     *
+     * @param game   the game object
+     * @param source the current place of the piece
+     * @return a set of available moves
+     */
     @Override
     public Move[] getAvailableMoves(Game game, Place source) {
-        var moves = new ArrayList<Move>();
-        for (int x = 0; x < game.getConfiguration().getSize(); x++) {
-            if (x != source.x()) {
-                moves.add(new Move(source, x, source.y()));
-            }
+        var size = game.getConfiguration().getSize();
+        if (source.x() < 0 || source.x() >= size || source.y() < 0 || source.y() >= size) {
+            return new Move[0];
+        }
+        var sourcePiece = game.getPiece(source);
+        if (sourcePiece == null) {
+            return new Move[0];
         }
-        for (int y = 0; y < game.getConfiguration().getSize(); y++) {
-            if (y != source.y()) {
-                moves.add(new Move(source, source.x(), y));
+        var bitBoard = game.getBitBoard();
+        var player = game.getPlayerIndex(sourcePiece.getPlayer());
+        var canCapture = game.getNumMoves() >= game.getConfiguration().getNumMovesProtection();
+        var moves = new Move[2 * (size - 1)];
+        var numMoves = 0;
+        for (var direction : DIRECTIONS) {
+            var x = source.x() + direction[0];
+            var y = source.y() + direction[1];
+            // quiet moves before the screen
+            while (isInside(size, x, y) && bitBoard.isEmpty(x, y)) {
+                moves[numMoves++] = Move.of(source, x, y);
+                x += direction[0];
+                y += direction[1];
+            }
+            // jump over the screen and look for the piece to capture
+            x += direction[0];
+            y += direction[1];
+            while (isInside(size, x, y) && bitBoard.isEmpty(x, y)) {
+                x += direction[0];
+                y += direction[1];
+            }
+            if (canCapture && isInside(size, x, y) && !bitBoard.isOccupiedBy(player, bitBoard.index(x, y))) {
+                moves[numMoves++] = Move.of(source, x, y);
             }
         }
+        return Arrays.copyOf(moves, numMoves);
+    }
 
-        return moves.stream()
-                .filter(move -> validateMove(game, move))
-                .toArray(Move[]::new);
+    private static boolean isInside(int size, int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
     }
 
     /**
      * Returns a valid candidate move given the current game {@link Game} and place  {@link Place} of the piece.
-     * A 1 second timeout should be set.
+     * The turn budget of the configuration ({@link Configuration#getTurnBudgetMillis()}) is set as the timeout.
      * If time is out, then no candidate move is proposed for this piece this round
      * The implementation is the same as {@link Knight#getCandidateMove(Game, Place)}
      * <p>
-     * Hint:
-     *      - The actual candidate move is selected in {@link Archer#run}
-     *      - if the returned move is invalid, nothing should be returned.
-     *      - Handle {@link InterruptedException}:
-     *      - nothing should be returned in such case
+     * The actual candidate move is selected in {@link Archer#run}, and waited for through
+     * {@link Archer#requestCandidateMove(Game, Place)}. Nothing is returned if the wait is interrupted.
+     *
      * @param game   the game object
      * @param source the current place of the piece
      * @return one candidate move
      */
     @Override
-    public synchronized Move getCandidateMove(Game game, Place source) {
-        //TODO
-        Object[] parameters = {game, source};
-        //clear both queue to prevent getting wrong move due to previous data
-        calculateMoveParametersQueue.clear();
-        candidateMoveQueue.clear();
+    public Move getCandidateMove(Game game, Place source) {
+        var candidate = this.requestCandidateMove(game, source);
         try {
-            //put new entry
-            this.calculateMoveParametersQueue.put(parameters);
-            Move candidate = this.candidateMoveQueue.poll(1, TimeUnit.SECONDS);
-            if (candidate instanceof Archer.InvalidMove){
-                return null;
-            }
-            return candidate;
-        } catch (InterruptedException e) {
+            return candidate.get(game.getConfiguration().getTurnBudgetMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            candidate.cancel(false);
             return null;
         }
     }
 
-    private boolean validateMove(Game game, Move move) {
-        var rules = new Rule[]{
-                new OutOfBoundaryRule(),
-                new OccupiedRule(),
-                new VacantRule(),
-                new NilMoveRule(),
-                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                new ArcherMoveRule(),
-                new CriticalRegionRule(),
-        };
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return false;
-            }
+    /**
+     * Post the parameters {@link Game} and {@link Place} to the piece thread, which proposes the candidate move in
+     * {@link Archer#run()}. Paused/terminated pieces do not propose candidate moves, so null is returned at once, and pending requests are
+     * completed with null when the piece is paused or terminated.
+     *
+     * @param game   the game object
+     * @param source the current place of the piece
+     * @return a future completed with the candidate move, or with null if no move is proposed
+     */
+    @Override
+    public CompletableFuture<Move> requestCandidateMove(Game game, Place source) {
+        if (this.stopped.get() || !this.running.get()) {
+            return CompletableFuture.completedFuture(null);
         }
-        return true;
+        var candidate = new CompletableFuture<Move>();
+        this.calculateMoveParametersQueue.add(new Object[]{game, source, candidate});
+        //paused or terminated after the check above, so the request would not be handled
+        if (this.stopped.get() || !this.running.get()) {
+            discardRequests();
+        }
+        notifyRequest();
+        return candidate;
     }
 
     /**
@@ -146,6 +169,7 @@ public class Archer extends Piece {
     public void pause() {
         //TODO
         this.running.set(false);
+        discardRequests();
     }
 
     /**
@@ -161,6 +185,7 @@ public class Archer extends Piece {
         synchronized (this.running){
             this.running.notifyAll();
         }
+        notifyRequest();
     }
 
     /**
@@ -173,6 +198,7 @@ public class Archer extends Piece {
     public void terminate() {
         //TODO
         this.stopped.set(true);
+        discardRequests();
     }
 
     /**
@@ -184,7 +210,7 @@ public class Archer extends Piece {
      *          - take out the {@link Game} and {@link Place} objects from calculateMoveParametersQueue
      *          - propose a candidate move (you may take advantage of {@link Archer#getAvailableMoves}
      *            using {@link MakeMoveByBehavior#getNextMove()} according to {@link this#behavior}
-     *          - add to {@link Archer#candidateMoveQueue}
+     *          - complete the future of the request with the proposed candidate move
      *      - When this piece has been stopped (marked by {@link Archer#stopped}): no more reaction
      *      - Handle {@link InterruptedException}
      */
@@ -206,26 +232,65 @@ public class Archer extends Piece {
 
                 //get the candidate move
                 Object[] parameters = this.calculateMoveParametersQueue.take();
-                Game game = (Game) parameters[0];
-                Place place = (Place) parameters[1];
-                Move[] moves = this.getAvailableMoves(game, place);
-
-                if (!(moves.length > 0)){
-                    this.candidateMoveQueue.put(new Archer.InvalidMove());
-                    continue;
-                }
-
-                //put the candidate move to queue to be polled
-                MakeMoveByBehavior moveByBehavior = new MakeMoveByBehavior(game, moves, this.behavior);
-                Move nextMove = moveByBehavior.getNextMove();
-                if (nextMove == null){
-                    this.candidateMoveQueue.put(new Archer.InvalidMove());
-                }else{
-                    this.candidateMoveQueue.put(nextMove);
-                }
+                //a request taken after the piece is paused is completed with null
+                proposeCandidateMove(parameters);
             } catch (InterruptedException e) {
                 //go to next iteration to handle the interrupt in try block
             }
         } while (true);
     }
+
+    @Override
+    public boolean handleRequest() {
+        if (this.stopped.get() || !this.running.get()) {
+            return false;
+        }
+        Object[] parameters = this.calculateMoveParametersQueue.poll();
+        if (parameters == null) {
+            return false;
+        }
+        proposeCandidateMove(parameters);
+        return true;
+    }
+
+    /**
+     * Propose a candidate move for the {@link Game} and {@link Place} in the parameters of a request, by completing
+     * the future of the request. Requests cancelled by the caller, e.g. after its deadline, are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private void proposeCandidateMove(Object[] parameters) {
+        Game game = (Game) parameters[0];
+        Place place = (Place) parameters[1];
+        CompletableFuture<Move> candidate = (CompletableFuture<Move>) parameters[2];
+        if (candidate.isDone()) {
+            return;
+        }
+        if (this.stopped.get() || !this.running.get()) {
+            candidate.complete(null);
+            return;
+        }
+        try {
+            Move[] moves = this.getAvailableMoves(game, place);
+            if (!(moves.length > 0)){
+                candidate.complete(null);
+                return;
+            }
+            MakeMoveByBehavior moveByBehavior = new MakeMoveByBehavior(game, moves, this.behavior);
+            candidate.complete(moveByBehavior.getNextMove());
+        } catch (RuntimeException e) {
+            candidate.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Complete the pending requests with null, since paused or terminated pieces do not propose candidate moves, so
+     * that they are not waited for until the deadline of the turn.
+     */
+    @SuppressWarnings("unchecked")
+    private void discardRequests() {
+        Object[] parameters;
+        while ((parameters = this.calculateMoveParametersQueue.poll()) != null) {
+            ((CompletableFuture<Move>) parameters[2]).complete(null);
+        }
+    }
 }
@@ -11,17 +11,20 @@ import castle.comp3021.assignment.protocol.Move;
 public class ArcherMoveRule implements Rule {
     @Override
     public boolean validate(Game game, Move move) {
-        if (!(game.getPiece(move.getSource()) instanceof Archer)) {
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        var sourcePiece = context.getSourcePiece();
+        if (!(sourcePiece instanceof Archer)) {
             return true;
         }
-        var source = move.getSource();
-        var destination = move.getDestination();
+        var game = context.getGame();
+        var source = context.getMove().getSource();
+        var destination = context.getMove().getDestination();
         var isCapturing = false;
-        var sourcePiece = game.getPiece(move.getSource());
-        if (sourcePiece == null) {
-            return true;
-        }
-        var captured = game.getPiece(move.getDestination());
+        var captured = context.getDestinationPiece();
         if (captured != null) {
             if (captured.getPlayer().equals(sourcePiece.getPlayer())) {
                 return true;
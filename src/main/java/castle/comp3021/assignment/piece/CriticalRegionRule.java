@@ -15,9 +15,15 @@ public class CriticalRegionRule implements Rule {
      */
     @Override
     public boolean validate(Game game, Move move) {
-        //TODO
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        var game = context.getGame();
+        var move = context.getMove();
         //no piece
-        Piece currentPiece = game.getPiece(move.getSource());
+        Piece currentPiece = context.getSourcePiece();
         if (currentPiece == null){
             return false;
         }
@@ -35,31 +41,7 @@ public class CriticalRegionRule implements Rule {
         }
         //count number of knight in critical region belong to current player
         int capacity = game.getConfiguration().getCriticalRegionCapacity();
-        Player piecePlayer = currentPiece.getPlayer();
-        int numCriticalKnight = 0;
-        int boardSize = game.getConfiguration().getSize();
-        for (int i=0; i < boardSize; i++){
-            for (int j=0; j < boardSize; j++){
-                Piece tempPiece = game.getPiece(i, j);
-                //no piece
-                if (tempPiece == null){
-                    continue;
-                }
-                //not piece belong this player
-                if (!tempPiece.getPlayer().equals(piecePlayer)){
-                    continue;
-                }
-                //not knight
-                if (!(tempPiece instanceof Knight)){
-                    continue;
-                }
-                //not in critical region
-                if (!isInCriticalRegion(game, new Place(i,j))){
-                    continue;
-                }
-                numCriticalKnight++;
-            }
-        }
+        int numCriticalKnight = game.getCriticalRegionKnightCount(currentPiece.getPlayer());
 
         return numCriticalKnight < capacity;
     }
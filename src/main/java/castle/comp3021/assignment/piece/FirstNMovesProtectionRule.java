@@ -18,9 +18,13 @@ public class FirstNMovesProtectionRule implements Rule {
 
     @Override
     public boolean validate(Game game, Move move) {
-        var destination = move.getDestination();
-        if (game.getPiece(destination) != null) {
-            return game.getNumMoves() >= this.numProtectedMoves;
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        if (context.getDestinationPiece() != null) {
+            return context.getGame().getNumMoves() >= this.numProtectedMoves;
         }
         return true;
     }
@@ -2,10 +2,13 @@ package castle.comp3021.assignment.piece;
 
 import castle.comp3021.assignment.protocol.*;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -15,19 +18,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * @see <a href='https://en.wikipedia.org/wiki/Knight_(chess)'>Wikipedia</a>
  */
 public class Knight extends Piece {
-    static class InvalidMove extends Move {
-        public InvalidMove() {
-            super(-1, -1, -1, -1);
-        }
-    }
-
     /**
-     * A BlockingDeque containing the candidate move
-     */
-    private final BlockingDeque<Move> candidateMoveQueue;
-
-    /**
-     * A LinkedBlockingDeque storing the parameters {@link Game} and {@link Place}
+     * A LinkedBlockingDeque storing the parameters {@link Game} and {@link Place}, and the {@link CompletableFuture}
+     * completed with the candidate move.
      * When calculateMoveParametersQueue is empty, the current piece thread should be waiting
      * until parameters {@link Game} and {@link Place} are passed in, the thread starts calculate the candidate move.
      */
@@ -36,7 +29,6 @@ public class Knight extends Piece {
 
     public Knight(Player player, Behavior behavior) {
         super(player, behavior);
-        this.candidateMoveQueue = new LinkedBlockingDeque<>();
         this.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
     }
 
@@ -44,7 +36,6 @@ public class Knight extends Piece {
         super(
                 player
         );
-        this.candidateMoveQueue = new LinkedBlockingDeque<>();
         this.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
     }
 
@@ -53,84 +44,105 @@ public class Knight extends Piece {
         return 'K';
     }
 
+    /**
+     * Returns the available moves of the knight, by walking the precomputed {@link KnightMoveTable} of the board size.
+     * Moves in the table are always inside the gameboard and follow {@link KnightMoveRule}, and the blocking square of
+     * each move is looked up from the table instead of being recomputed. The remaining rules (occupancy, the protection
+     * window and the capacity of the critical region) are checked directly on the bitboard, so only legal moves are
+     * generated and no move is rejected afterwards.
+     *
+     * @param game   the game object
+     * @param source the current place of the piece
+     * @return a set of available moves
+     */
     @Override
     public Move[] getAvailableMoves(Game game, Place source) {
-        var moves = new ArrayList<Move>();
-        var steps = new int[]{1, -1, 2, -2};
-        for (var stepX :
-                steps) {
-            for (var stepY :
-                    steps) {
-                var destination = new Place(source.x() + stepX, source.y() + stepY);
-                if (Math.abs(destination.x() - source.x()) + Math.abs(destination.y() - source.y()) == 3) {
-                    moves.add(new Move(source, destination));
-                }
+        var size = game.getConfiguration().getSize();
+        if (source.x() < 0 || source.x() >= size || source.y() < 0 || source.y() >= size) {
+            return new Move[0];
+        }
+        var sourcePiece = game.getPiece(source);
+        if (sourcePiece == null) {
+            return new Move[0];
+        }
+        var table = KnightMoveTable.forSize(size);
+        var bitBoard = game.getBitBoard();
+        var player = game.getPlayerIndex(sourcePiece.getPlayer());
+        var from = table.index(source.x(), source.y());
+        var destinations = table.getDestinations(from);
+        var blocks = table.getBlocks(from);
+        var canCapture = game.getNumMoves() >= game.getConfiguration().getNumMovesProtection();
+        // only knights outside the critical region are limited by its capacity
+        var canEnterCriticalRegion = !(sourcePiece instanceof Knight) || bitBoard.isInCriticalRegion(from)
+                || game.getCriticalRegionKnightCount(sourcePiece.getPlayer())
+                < game.getConfiguration().getCriticalRegionCapacity();
+        var moves = new Move[destinations.length];
+        var numMoves = 0;
+        for (int i = 0; i < destinations.length; i++) {
+            var to = destinations[i];
+            if (!bitBoard.isEmpty(blocks[i])) {
+                // the knight is blocked
+                continue;
             }
+            if (!bitBoard.isEmpty(to) && (!canCapture || bitBoard.isOccupiedBy(player, to))) {
+                continue;
+            }
+            if (!canEnterCriticalRegion && bitBoard.isInCriticalRegion(to)) {
+                continue;
+            }
+            moves[numMoves++] = Move.of(source, table.x(to), table.y(to));
         }
-        return moves.stream()
-                .filter(move -> validateMove(game, move))
-                .toArray(Move[]::new);
+        return Arrays.copyOf(moves, numMoves);
     }
 
     /**
      * Returns a valid candidate move given the current game {@link Game} and place  {@link Place} of the piece.
-     * A 1 second timeout should be set.
+     * The turn budget of the configuration ({@link Configuration#getTurnBudgetMillis()}) is set as the timeout.
      * If time is out, then no candidate move is proposed for this piece this round
      * The implementation is the same as {@link Archer#getCandidateMove(Game, Place)}
      * <p>
-     * Hint:
-     * - The actual candidate move is selected in {@link Knight#run}
-     * so in this method, you need to pick up one candidate move from {@link Knight#candidateMoveQueue}
-     * - if the returned move is invalid, nothing should be returned.
-     * - Handle {@link InterruptedException}:
-     * - nothing should be returned in such case
+     * The actual candidate move is selected in {@link Knight#run}, and waited for through
+     * {@link Knight#requestCandidateMove(Game, Place)}. Nothing is returned if the wait is interrupted.
      *
      * @param game   the game object
      * @param source the current place of the piece
      * @return one candidate move
      */
     @Override
-    public synchronized Move getCandidateMove(Game game, Place source) {
-        //TODO
-        Object[] parameters = {game, source};
-        //clear both queue to prevent getting wrong move due to previous data
-        calculateMoveParametersQueue.clear();
-        candidateMoveQueue.clear();
+    public Move getCandidateMove(Game game, Place source) {
+        var candidate = this.requestCandidateMove(game, source);
         try {
-            //put new entry
-            this.calculateMoveParametersQueue.put(parameters);
-            Move candidate = this.candidateMoveQueue.poll(1, TimeUnit.SECONDS);
-            if (candidate instanceof Knight.InvalidMove){
-                return null;
-            }
-            return candidate;
-        } catch (InterruptedException e) {
+            return candidate.get(game.getConfiguration().getTurnBudgetMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            candidate.cancel(false);
             return null;
         }
     }
 
-    private boolean validateMove(Game game, Move move) {
-        var rules = new Rule[]{
-                new OutOfBoundaryRule(),
-                new OccupiedRule(),
-                new VacantRule(),
-                new NilMoveRule(),
-                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                new KnightMoveRule(),
-                new KnightBlockRule(),
-                // newly added rule
-                new CriticalRegionRule(),
-        };
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return false;
-            }
+    /**
+     * Post the parameters {@link Game} and {@link Place} to the piece thread, which proposes the candidate move in
+     * {@link Knight#run()}. Paused/terminated pieces do not propose candidate moves, so null is returned at once, and pending requests are
+     * completed with null when the piece is paused or terminated.
+     *
+     * @param game   the game object
+     * @param source the current place of the piece
+     * @return a future completed with the candidate move, or with null if no move is proposed
+     */
+    @Override
+    public CompletableFuture<Move> requestCandidateMove(Game game, Place source) {
+        if (this.stopped.get() || !this.running.get()) {
+            return CompletableFuture.completedFuture(null);
         }
-        return true;
+        var candidate = new CompletableFuture<Move>();
+        this.calculateMoveParametersQueue.add(new Object[]{game, source, candidate});
+        //paused or terminated after the check above, so the request would not be handled
+        if (this.stopped.get() || !this.running.get()) {
+            discardRequests();
+        }
+        notifyRequest();
+        return candidate;
     }
 
-
     /**
      * An atomic boolean variable which marks whether this piece thread is running
      * running = true: this piece is running.
@@ -154,6 +166,7 @@ public class Knight extends Piece {
     public void pause() {
         //TODO
         this.running.set(false);
+        discardRequests();
     }
 
     /**
@@ -169,6 +182,7 @@ public class Knight extends Piece {
         synchronized (this.running){
             this.running.notifyAll();
         }
+        notifyRequest();
     }
 
     /**
@@ -181,6 +195,7 @@ public class Knight extends Piece {
     public void terminate() {
         //TODO
         this.stopped.set(true);
+        discardRequests();
     }
 
     /**
@@ -193,7 +208,7 @@ public class Knight extends Piece {
      *          - propose a candidate move (you may take advantage of {@link Archer#getAvailableMoves}
      *            using {@link MakeMoveByBehavior#getNextMove()} according to {@link this#behavior}
      *                      come up with any strategy to pick one from {@link Knight#getAvailableMoves(Game, Place)}
-     *          - add the proposed candidate move to {@link Knight#candidateMoveQueue}
+     *          - complete the future of the request with the proposed candidate move
      *      - When this piece has been stopped (marked by {@link Knight#stopped}): no more reaction
      *      - Handle {@link InterruptedException}
      *  Hint: the same as {@link Archer#run()}
@@ -216,26 +231,65 @@ public class Knight extends Piece {
 
                 //get the candidate move
                 Object[] parameters = this.calculateMoveParametersQueue.take();
-                Game game = (Game) parameters[0];
-                Place place = (Place) parameters[1];
-                Move[] moves = this.getAvailableMoves(game, place);
-
-                if (!(moves.length > 0)){
-                    this.candidateMoveQueue.put(new Knight.InvalidMove());
-                    continue;
-                }
-
-                //put the candidate move to queue to be polled
-                MakeMoveByBehavior moveByBehavior = new MakeMoveByBehavior(game, moves, this.behavior);
-                Move nextMove = moveByBehavior.getNextMove();
-                if (nextMove == null){
-                    this.candidateMoveQueue.put(new Knight.InvalidMove());
-                }else{
-                    this.candidateMoveQueue.put(nextMove);
-                }
+                //a request taken after the piece is paused is completed with null
+                proposeCandidateMove(parameters);
             } catch (InterruptedException e) {
                 //go to next iteration to handle the interrupt in try block
             }
         } while (true);
     }
+
+    @Override
+    public boolean handleRequest() {
+        if (this.stopped.get() || !this.running.get()) {
+            return false;
+        }
+        Object[] parameters = this.calculateMoveParametersQueue.poll();
+        if (parameters == null) {
+            return false;
+        }
+        proposeCandidateMove(parameters);
+        return true;
+    }
+
+    /**
+     * Propose a candidate move for the {@link Game} and {@link Place} in the parameters of a request, by completing
+     * the future of the request. Requests cancelled by the caller, e.g. after its deadline, are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private void proposeCandidateMove(Object[] parameters) {
+        Game game = (Game) parameters[0];
+        Place place = (Place) parameters[1];
+        CompletableFuture<Move> candidate = (CompletableFuture<Move>) parameters[2];
+        if (candidate.isDone()) {
+            return;
+        }
+        if (this.stopped.get() || !this.running.get()) {
+            candidate.complete(null);
+            return;
+        }
+        try {
+            Move[] moves = this.getAvailableMoves(game, place);
+            if (!(moves.length > 0)){
+                candidate.complete(null);
+                return;
+            }
+            MakeMoveByBehavior moveByBehavior = new MakeMoveByBehavior(game, moves, this.behavior);
+            candidate.complete(moveByBehavior.getNextMove());
+        } catch (RuntimeException e) {
+            candidate.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Complete the pending requests with null, since paused or terminated pieces do not propose candidate moves, so
+     * that they are not waited for until the deadline of the turn.
+     */
+    @SuppressWarnings("unchecked")
+    private void discardRequests() {
+        Object[] parameters;
+        while ((parameters = this.calculateMoveParametersQueue.poll()) != null) {
+            ((CompletableFuture<Move>) parameters[2]).complete(null);
+        }
+    }
 }
@@ -12,25 +12,43 @@ import castle.comp3021.assignment.protocol.Place;
 public class KnightBlockRule implements Rule {
     @Override
     public boolean validate(Game game, Move move) {
-        if (!(game.getPiece(move.getSource()) instanceof Knight)) {
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        if (!(context.getSourcePiece() instanceof Knight)) {
             return true;
         }
+        var game = context.getGame();
+        var move = context.getMove();
 
         var source = move.getSource();
         var destination = move.getDestination();
+        var table = KnightMoveTable.forSize(game.getConfiguration().getSize());
+        if (isInside(table, source) && isInside(table, destination)) {
+            var blockSquare = table.getBlock(table.index(source.x(), source.y()),
+                    table.index(destination.x(), destination.y()));
+            if (blockSquare >= 0) {
+                // some other piece is at the block place of knight
+                return game.getBitBoard().isEmpty(blockSquare);
+            }
+        }
         if (Math.abs(source.x() - destination.x()) == 2) {
-            var blockPlace = new Place((source.x() + destination.x()) / 2, source.y());
             // some other piece is at the block place of knight
-            return game.getPiece(blockPlace) == null;
+            return game.getPiece((source.x() + destination.x()) / 2, source.y()) == null;
         } else if (Math.abs(source.y() - destination.y()) == 2) {
-            var blockPlace = new Place(source.x(), (source.y() + destination.y()) / 2);
             // some other piece is at the block place of knight
-            return game.getPiece(blockPlace) == null;
+            return game.getPiece(source.x(), (source.y() + destination.y()) / 2) == null;
         } else {
             return false;
         }
     }
 
+    private static boolean isInside(KnightMoveTable table, Place place) {
+        return place.x() >= 0 && place.x() < table.getSize() && place.y() >= 0 && place.y() < table.getSize();
+    }
+
     @Override
     public String getDescription() {
         return "knight is blocked by another piece";
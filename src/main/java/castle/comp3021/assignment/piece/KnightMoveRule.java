@@ -10,9 +10,15 @@ public class KnightMoveRule implements Rule {
 
     @Override
     public boolean validate(Game game, Move move) {
-        if (!(game.getPiece(move.getSource()) instanceof Knight)) {
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        if (!(context.getSourcePiece() instanceof Knight)) {
             return true;
         }
+        var move = context.getMove();
         var source = move.getSource();
         var destination = move.getDestination();
         return Math.abs(destination.x() - source.x()) == 2 && Math.abs(destination.y() - source.y()) == 1 ||
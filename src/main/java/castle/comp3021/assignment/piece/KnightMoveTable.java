@@ -0,0 +1,210 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.BitBoard;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed moves of {@link Knight} for one board size.
+ * <p>
+ * For every square, the table stores the destinations reachable by a knight move and the square that blocks each of
+ * them (the "horse leg", see {@link KnightBlockRule}), and the number of knight moves to the central place on an empty
+ * gameboard, found by breadth-first search. Squares are indexed by {@code x * size + y}, the same as {@link BitBoard}.
+ * <p>
+ * Tables are immutable, built once per board size and shared by every {@link Knight}.
+ */
+public final class KnightMoveTable {
+    /**
+     * Distance of squares from which a knight cannot reach the central place
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Largest board size whose table is cached.
+     */
+    private static final int MAX_CACHED_SIZE = 26;
+
+    private static final KnightMoveTable[] TABLES = new KnightMoveTable[MAX_CACHED_SIZE + 1];
+
+    /**
+     * The 8 knight steps, in the form of {stepX, stepY}
+     */
+    private static final int[][] STEPS = {
+            {1, 2}, {2, 1}, {2, -1}, {1, -2},
+            {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2},
+    };
+
+    private final int size;
+
+    /**
+     * Destinations of each square, indexed by [square][i]
+     */
+    private final int[][] destinations;
+
+    /**
+     * Blocking square of each destination, indexed by [square][i]
+     */
+    private final int[][] blocks;
+
+    /**
+     * Blocking square of the move from each destination back to the square, indexed by [square][i]
+     */
+    private final int[][] reverseBlocks;
+
+    /**
+     * Number of knight moves from each square to the central place on an empty gameboard
+     */
+    private final int[] centerDistances;
+
+    private KnightMoveTable(int size) {
+        this.size = size;
+        this.destinations = new int[size * size][];
+        this.blocks = new int[size * size][];
+        this.reverseBlocks = new int[size * size][];
+        var destinationBuffer = new int[STEPS.length];
+        var blockBuffer = new int[STEPS.length];
+        var reverseBlockBuffer = new int[STEPS.length];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var count = 0;
+                for (var step : STEPS) {
+                    var toX = x + step[0];
+                    var toY = y + step[1];
+                    if (toX < 0 || toX >= size || toY < 0 || toY >= size) {
+                        continue;
+                    }
+                    destinationBuffer[count] = index(toX, toY);
+                    // the move back from the destination takes the opposite step
+                    if (Math.abs(step[0]) == 2) {
+                        blockBuffer[count] = index(x + step[0] / 2, y);
+                        reverseBlockBuffer[count] = index(x + step[0] / 2, toY);
+                    } else {
+                        blockBuffer[count] = index(x, y + step[1] / 2);
+                        reverseBlockBuffer[count] = index(toX, y + step[1] / 2);
+                    }
+                    count++;
+                }
+                var square = index(x, y);
+                this.destinations[square] = Arrays.copyOf(destinationBuffer, count);
+                this.blocks[square] = Arrays.copyOf(blockBuffer, count);
+                this.reverseBlocks[square] = Arrays.copyOf(reverseBlockBuffer, count);
+            }
+        }
+        this.centerDistances = computeCenterDistances(null);
+    }
+
+    /**
+     * Get the shared table of a board size.
+     *
+     * @param size size of gameboard
+     * @return the table
+     */
+    public static KnightMoveTable forSize(int size) {
+        if (size > MAX_CACHED_SIZE) {
+            return new KnightMoveTable(size);
+        }
+        var table = TABLES[size];
+        if (table == null) {
+            // racing threads may build the same table twice, which is harmless since tables are immutable
+            table = new KnightMoveTable(size);
+            TABLES[size] = table;
+        }
+        return table;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int index(int x, int y) {
+        return x * size + y;
+    }
+
+    public int x(int square) {
+        return square / size;
+    }
+
+    public int y(int square) {
+        return square % size;
+    }
+
+    /**
+     * @param square the source square
+     * @return destinations reachable from the square, which should not be modified
+     */
+    public int[] getDestinations(int square) {
+        return destinations[square];
+    }
+
+    /**
+     * @param square the source square
+     * @return blocking squares, where {@code getBlocks(square)[i]} blocks the move to {@code getDestinations(square)[i]}
+     */
+    public int[] getBlocks(int square) {
+        return blocks[square];
+    }
+
+    /**
+     * @param square the source square
+     * @return number of knight moves from the square to the central place on an empty gameboard, or
+     * {@link KnightMoveTable#UNREACHABLE}
+     */
+    public int getCenterDistance(int square) {
+        return centerDistances[square];
+    }
+
+    /**
+     * Compute the number of knight moves from each square to the central place with pieces on the gameboard, by
+     * breadth-first search from the central place. On the way, a knight can neither pass a blocking square (see
+     * {@link KnightBlockRule}) nor land on an occupied square, and the pieces are assumed to stay where they are.
+     * The distance of an occupied square is the distance of a knight standing on it.
+     *
+     * @param bitBoard the pieces on the gameboard, or null for an empty gameboard
+     * @return distances indexed by square, {@link KnightMoveTable#UNREACHABLE} for squares that cannot reach the
+     * central place
+     */
+    public int[] computeCenterDistances(BitBoard bitBoard) {
+        var distances = new int[size * size];
+        Arrays.fill(distances, UNREACHABLE);
+        var queue = new int[size * size];
+        var center = index(size / 2, size / 2);
+        distances[center] = 0;
+        queue[0] = center;
+        var head = 0;
+        var tail = 1;
+        while (head < tail) {
+            var square = queue[head++];
+            // knight moves are symmetric, so the squares reaching this square are its destinations
+            var sources = destinations[square];
+            var legs = reverseBlocks[square];
+            for (int i = 0; i < sources.length; i++) {
+                var source = sources[i];
+                if (distances[source] != UNREACHABLE || bitBoard != null && !bitBoard.isEmpty(legs[i])) {
+                    continue;
+                }
+                distances[source] = distances[square] + 1;
+                if (bitBoard == null || bitBoard.isEmpty(source)) {
+                    queue[tail++] = source;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Find the square blocking the knight move from one square to another.
+     *
+     * @param from the source square
+     * @param to   the destination square
+     * @return the blocking square, or -1 if the move is not a knight move
+     */
+    public int getBlock(int from, int to) {
+        var fromDestinations = destinations[from];
+        for (int i = 0; i < fromDestinations.length; i++) {
+            if (fromDestinations[i] == to) {
+                return blocks[from][i];
+            }
+        }
+        return -1;
+    }
+}
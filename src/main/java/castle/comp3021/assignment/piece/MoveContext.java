@@ -0,0 +1,68 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.Piece;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A move to be validated together with the pieces at its source and destination, which are looked up once and shared
+ * by all rules in a {@link RulePipeline}.
+ * <p>
+ * A context can be reused for many moves of the same game by calling {@link MoveContext#reset(Move)}, so that
+ * validating moves in a loop does not allocate.
+ */
+public class MoveContext {
+    private final Game game;
+
+    private Move move;
+
+    private Piece sourcePiece;
+
+    private Piece destinationPiece;
+
+    public MoveContext(Game game) {
+        this.game = game;
+    }
+
+    public MoveContext(Game game, Move move) {
+        this(game);
+        this.reset(move);
+    }
+
+    /**
+     * Point the context to another move of the same game.
+     *
+     * @param move the move to be validated
+     * @return this context
+     */
+    public MoveContext reset(Move move) {
+        this.move = move;
+        this.sourcePiece = game.getPiece(move.getSource().x(), move.getSource().y());
+        this.destinationPiece = game.getPiece(move.getDestination().x(), move.getDestination().y());
+        return this;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * @return the piece at the source of the move, or null if there is none or the source is outside the gameboard
+     */
+    public @Nullable Piece getSourcePiece() {
+        return sourcePiece;
+    }
+
+    /**
+     * @return the piece at the destination of the move, or null if there is none or the destination is outside the
+     * gameboard
+     */
+    public @Nullable Piece getDestinationPiece() {
+        return destinationPiece;
+    }
+}
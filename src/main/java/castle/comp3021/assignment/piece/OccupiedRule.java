@@ -10,8 +10,13 @@ import castle.comp3021.assignment.protocol.Move;
 public class OccupiedRule implements Rule {
     @Override
     public boolean validate(Game game, Move move) {
-        var sourcePiece = game.getPiece(move.getSource());
-        var destinationPiece = game.getPiece(move.getDestination());
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        var sourcePiece = context.getSourcePiece();
+        var destinationPiece = context.getDestinationPiece();
         if (destinationPiece == null) {
             return true;
         }
@@ -20,6 +20,18 @@ public interface Rule {
      */
     public boolean validate(Game game, Move move);
 
+    /**
+     * Validate the move in a context, where the pieces at the source and destination of the move have been looked up.
+     * Rules in a {@link RulePipeline} are checked through this method, so rules should override it to reuse the
+     * looked up pieces.
+     *
+     * @param context the move to be validated and its pieces
+     * @return true if the rule check pass. If the rule is violated, return false.
+     */
+    public default boolean validate(MoveContext context) {
+        return validate(context.getGame(), context.getMove());
+    }
+
     /**
      * Returns a string description of the rule, which will be printed as error message when the rule is violated.
      *
@@ -0,0 +1,124 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.Piece;
+
+/**
+ * The rules of a {@link Configuration}, compiled once into chains of shared rule instances.
+ * <p>
+ * Besides the full chain, which is used when the piece to move is unknown, there is a chain for each piece type that
+ * leaves out the rules that never apply to the type, e.g. knights never evaluate {@link ArcherMoveRule}.
+ * Rules in every chain keep the order of the full chain, so the first violated rule (and thus the error message) is the
+ * same as checking the full chain.
+ * <p>
+ * Rules are stateless apart from the configured protection count, so a pipeline can be shared by all games and threads
+ * using the configuration. Use {@link Configuration#getRulePipeline()} to get the pipeline of a configuration.
+ */
+public final class RulePipeline {
+    private static final Rule OUT_OF_BOUNDARY_RULE = new OutOfBoundaryRule();
+    private static final Rule OCCUPIED_RULE = new OccupiedRule();
+    private static final Rule VACANT_RULE = new VacantRule();
+    private static final Rule NIL_MOVE_RULE = new NilMoveRule();
+    private static final Rule ARCHER_MOVE_RULE = new ArcherMoveRule();
+    private static final Rule KNIGHT_MOVE_RULE = new KnightMoveRule();
+    private static final Rule KNIGHT_BLOCK_RULE = new KnightBlockRule();
+    private static final Rule CRITICAL_REGION_RULE = new CriticalRegionRule();
+
+    /**
+     * The protection count the pipeline is compiled with
+     */
+    private final int numMovesProtection;
+
+    private final Rule[] fullRules;
+
+    private final Rule[] knightRules;
+
+    private final Rule[] archerRules;
+
+    public RulePipeline(int numMovesProtection) {
+        this.numMovesProtection = numMovesProtection;
+        var protectionRule = new FirstNMovesProtectionRule(numMovesProtection);
+        this.fullRules = new Rule[]{
+                OUT_OF_BOUNDARY_RULE,
+                OCCUPIED_RULE,
+                VACANT_RULE,
+                NIL_MOVE_RULE,
+                protectionRule,
+                ARCHER_MOVE_RULE,
+                KNIGHT_MOVE_RULE,
+                KNIGHT_BLOCK_RULE,
+                CRITICAL_REGION_RULE,
+        };
+        this.knightRules = new Rule[]{
+                OUT_OF_BOUNDARY_RULE,
+                OCCUPIED_RULE,
+                VACANT_RULE,
+                NIL_MOVE_RULE,
+                protectionRule,
+                KNIGHT_MOVE_RULE,
+                KNIGHT_BLOCK_RULE,
+                CRITICAL_REGION_RULE,
+        };
+        this.archerRules = new Rule[]{
+                OUT_OF_BOUNDARY_RULE,
+                OCCUPIED_RULE,
+                VACANT_RULE,
+                NIL_MOVE_RULE,
+                protectionRule,
+                ARCHER_MOVE_RULE,
+        };
+    }
+
+    public int getNumMovesProtection() {
+        return numMovesProtection;
+    }
+
+    /**
+     * Get the chain of rules that applies to a piece.
+     *
+     * @param piece the piece to move, or null if unknown
+     * @return the rules, which should not be modified
+     */
+    public Rule[] getRules(Piece piece) {
+        if (piece instanceof Knight) {
+            return knightRules;
+        } else if (piece instanceof Archer) {
+            return archerRules;
+        }
+        return fullRules;
+    }
+
+    /**
+     * Find the first rule violated by the move in the context.
+     *
+     * @param context the move and its pieces
+     * @return the violated rule, or null if the move is valid
+     */
+    public Rule findViolation(MoveContext context) {
+        for (var rule : getRules(context.getSourcePiece())) {
+            if (!rule.validate(context)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param context the move and its pieces
+     * @return whether the move in the context violates no rule
+     */
+    public boolean isValid(MoveContext context) {
+        return findViolation(context) == null;
+    }
+
+    /**
+     * @param game the current game object
+     * @param move the move to be validated
+     * @return whether the move violates no rule
+     */
+    public boolean isValid(Game game, Move move) {
+        return isValid(new MoveContext(game, move));
+    }
+}
@@ -9,8 +9,12 @@ import castle.comp3021.assignment.protocol.Move;
 public class VacantRule implements Rule {
     @Override
     public boolean validate(Game game, Move move) {
-        var sourcePiece = game.getPiece(move.getSource());
-        return sourcePiece != null;
+        return validate(new MoveContext(game, move));
+    }
+
+    @Override
+    public boolean validate(MoveContext context) {
+        return context.getSourcePiece() != null;
     }
 
     @Override
@@ -7,6 +7,44 @@ import org.jetbrains.annotations.NotNull;
  * A computer player that makes a move randomly.
  */
 public class ComputerPlayer extends Player {
+    /**
+     * Time budget of choosing a move by {@link Strategy#SEARCH} and {@link Strategy#MCTS}, in milliseconds
+     */
+    private long searchTimeBudgetMillis = AlphaBetaSearch.DEFAULT_TIME_BUDGET_MILLIS;
+
+    /**
+     * Number of threads searching a move by {@link Strategy#SEARCH} in parallel
+     */
+    private int searchThreads = 1;
+
+    /**
+     * Number of iterations of choosing a move by {@link Strategy#MCTS}, or 0 to use up the time budget
+     */
+    private int mctsIterations = 0;
+
+    /**
+     * Book of opening moves consulted before searching by {@link Strategy#SEARCH} and {@link Strategy#MCTS}
+     */
+    private OpeningBook openingBook = OpeningBook.getDefault();
+
+    /**
+     * Endgame tablebase consulted by strategies other than {@link Strategy#RANDOM}, or null for the default tablebase of
+     * the size of the game (see {@link Tablebase#getDefault(int)})
+     */
+    private Tablebase tablebase = null;
+
+    /**
+     * Largest number of pieces on the gameboard for consulting the endgame tablebase
+     */
+    private int tablebasePieceThreshold = 3;
+
+    /**
+     * Whether {@link Strategy#SEARCH} searches the likely replies of the opponent during the turn of the opponent
+     */
+    private boolean pondering = false;
+
+    private final Ponderer ponderer = new Ponderer();
+
     public ComputerPlayer(String name, Color color, Strategy strategy) {
         super(name, color, strategy);
     }
@@ -19,9 +57,179 @@ public class ComputerPlayer extends Player {
         this(name, Color.BLUE);
     }
 
+    public long getSearchTimeBudgetMillis() {
+        return searchTimeBudgetMillis;
+    }
+
+    public void setSearchTimeBudgetMillis(long searchTimeBudgetMillis) {
+        this.searchTimeBudgetMillis = searchTimeBudgetMillis;
+    }
+
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    public void setSearchThreads(int searchThreads) {
+        this.searchThreads = searchThreads;
+    }
+
+    public int getMctsIterations() {
+        return mctsIterations;
+    }
+
+    public void setMctsIterations(int mctsIterations) {
+        this.mctsIterations = mctsIterations;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    /**
+     * @param openingBook the book of opening moves, or {@link OpeningBook#EMPTY} to always search
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * @param tablebase the endgame tablebase, or null for the default tablebase of the size of the game
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public int getTablebasePieceThreshold() {
+        return tablebasePieceThreshold;
+    }
+
+    /**
+     * @param tablebasePieceThreshold the largest number of pieces on the gameboard for consulting the endgame
+     *                                tablebase, or 0 to never consult it
+     */
+    public void setTablebasePieceThreshold(int tablebasePieceThreshold) {
+        this.tablebasePieceThreshold = tablebasePieceThreshold;
+    }
+
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    /**
+     * Switch pondering of {@link Strategy#SEARCH} on or off. Pondering takes up processors during the turn of the
+     * opponent, so it is meant for games against human players.
+     *
+     * @param pondering whether to search the likely replies of the opponent during the turn of the opponent
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) {
+            this.ponderer.cancel();
+        }
+    }
+
+    public Ponderer getPonderer() {
+        return ponderer;
+    }
+
+    /**
+     * Stop pondering at once, e.g. when the game is over.
+     */
+    public void stopPondering() {
+        this.ponderer.cancel();
+    }
+
     @Override
     public @NotNull Move nextMove(Game game, Move[] availableMoves) {
-        return new MakeMoveByStrategy(game, availableMoves, this.strategy).getNextMove();
+        if (!this.pondering || this.strategy != Strategy.SEARCH) {
+            return this.chooseMove(game, availableMoves, null);
+        }
+        // the opponent has moved, so searches of other replies are no longer needed
+        this.ponderer.stop(game);
+        var move = this.chooseMove(game, availableMoves, this.ponderer.getResult(game));
+        if (move != null) {
+            this.ponderer.start(game, move, this.searchTimeBudgetMillis);
+        }
+        return move;
     }
-}
 
+    /**
+     * Choose a move by the opening book, the endgame tablebase and the strategy, in this order.
+     *
+     * @param pondered the result of pondering the current position, or null if it has not been pondered
+     */
+    private Move chooseMove(Game game, Move[] availableMoves, Ponderer.Result pondered) {
+        if (this.strategy == Strategy.SEARCH || this.strategy == Strategy.MCTS) {
+            var bookMove = this.getBookMove(game, availableMoves);
+            if (bookMove != null) {
+                return bookMove;
+            }
+        }
+        if (this.strategy != Strategy.RANDOM) {
+            var bestMoves = this.getTablebaseMoves(game, availableMoves);
+            if (bestMoves != null) {
+                if (bestMoves.length == 1) {
+                    return bestMoves[0];
+                }
+                // the strategy chooses among the moves keeping the best result
+                availableMoves = bestMoves;
+            }
+        }
+        if (pondered != null) {
+            for (var move : availableMoves) {
+                if (move.equals(pondered.getMove())) {
+                    return move;
+                }
+            }
+            // the pondered move is not proposed, but the transposition table holds the pondered search, so searching
+            // the proposed moves to the same depth is fast
+            var search = new AlphaBetaSearch(game.copyPosition(), this.searchTimeBudgetMillis,
+                    game.getTranspositionTable());
+            search.setParallelism(this.searchThreads);
+            search.setMaxDepth(pondered.getDepth());
+            return search.search(availableMoves);
+        }
+        return new MakeMoveByStrategy(game, availableMoves, this.strategy, this.searchTimeBudgetMillis,
+                this.searchThreads, this.mctsIterations).getNextMove();
+    }
+
+    /**
+     * Look up the current position in the endgame tablebase when few pieces are left.
+     *
+     * @return the best moves, or null if the position is not in the tablebase
+     */
+    private Move[] getTablebaseMoves(Game game, Move[] availableMoves) {
+        var pieceIndex = game.getPieceIndex();
+        if (pieceIndex.getCount(0) + pieceIndex.getCount(1) > this.tablebasePieceThreshold) {
+            return null;
+        }
+        var table = this.tablebase != null ? this.tablebase
+                : Tablebase.getDefault(game.getConfiguration().getSize());
+        return table.bestMoves(game, availableMoves);
+    }
+
+    /**
+     * Look up the current position in the opening book.
+     * The book move is only played if it is valid and its piece is one of the pieces proposing moves in this round,
+     * since paused or terminated pieces cannot move.
+     *
+     * @return the book move, or null if there is none
+     */
+    private Move getBookMove(Game game, Move[] availableMoves) {
+        var move = this.openingBook.lookup(game);
+        if (move == null) {
+            return null;
+        }
+        for (var availableMove : availableMoves) {
+            // the piece of the book move is one of the pieces of this player proposing moves
+            if (availableMove.getSource().equals(move.getSource())) {
+                return game.getConfiguration().getRulePipeline().isValid(game, move) ? move : null;
+            }
+        }
+        return null;
+    }
+}
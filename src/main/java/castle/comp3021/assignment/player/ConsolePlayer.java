@@ -128,7 +128,7 @@ public class ConsolePlayer extends HumanPlayer {
         try {
             var x = str.charAt(0) - 'a';
             var y = Integer.parseInt(str.substring(1)) - 1;
-            return new Place(x, y);
+            return Place.of(x, y);
         } catch (NumberFormatException e) {
             return null;
         }
@@ -147,7 +147,7 @@ public class ConsolePlayer extends HumanPlayer {
         if (destination == null) {
             return null;
         }
-        return new Move(source, destination);
+        return Move.of(source, destination);
     }
 }
 
@@ -0,0 +1,414 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Knight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Negamax search with alpha-beta pruning and iterative deepening, used by {@link Strategy#SEARCH}.
+ * <p>
+ * The search plays moves on the given game by {@link Game#makeMove(Move)} and takes them back by
+ * {@link Game#unmakeMove(UndoToken)}, so the game is unchanged when the search returns. The board is changed during
+ * the search, so a game being played should be searched on its {@link Game#copyPosition()}, which shares its table.
+ * Moves are generated by {@link Piece#getAvailableMoves(Game, Place)}, which follow all rules, and the game ends the
+ * same way as {@link castle.comp3021.assignment.textversion.JesonMor}:
+ * - a knight leaves the central place after the protection window, and its player wins;
+ * - a player captures all pieces of the other player after the protection window;
+ * - the player to move has no available moves, and the player with the lower score wins (the player to move wins
+ * when the scores are equal).
+ * <p>
+ * The search deepens one ply at a time until the time budget runs out, and returns the best move of the deepest
+ * completed iteration. Results of positions are cached in a {@link TranspositionTable}, which is shared by all searches
+ * of the game by default. Positions reached with different scores of players share entries, so the score tie-break of
+ * positions without available moves may be cached from another line.
+ * <p>
+ * With a parallelism above 1, each iteration searches the first root move alone to get a bound, and then splits the
+ * other root moves across a {@link ForkJoinPool}. Each worker searches on its own {@link Game#copyPosition()}, and
+ * workers share the table and the best score at the root, so that a better move found by one worker narrows the
+ * search window of the others.
+ */
+public class AlphaBetaSearch {
+    /**
+     * Default time budget of searching one move, in milliseconds
+     */
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 500;
+
+    /**
+     * Score of winning the game at the root; wins in fewer moves score higher.
+     */
+    public static final int WIN_SCORE = 1_000_000;
+
+    /**
+     * Largest depth of search, which also bounds the number of plies to a win
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * Number of nodes searched between two checks of the clock.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final Game game;
+
+    private final TranspositionTable table;
+
+    private final long timeBudgetNanos;
+
+    private long deadline;
+
+    private boolean timedOut;
+
+    private long nodes;
+
+    private int completedDepth;
+
+    private int maxDepth = MAX_DEPTH;
+
+    private int parallelism = 1;
+
+    /**
+     * Set by {@link AlphaBetaSearch#cancel()}, and shared with the workers of a parallel search
+     */
+    private AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * The best score at the root shared by workers of a parallel search, or null if the search is not a worker.
+     */
+    private AtomicInteger sharedRootAlpha;
+
+    public AlphaBetaSearch(Game game, long timeBudgetMillis, TranspositionTable table) {
+        this.game = game;
+        this.timeBudgetNanos = Math.max(1, timeBudgetMillis) * 1_000_000;
+        this.table = table;
+    }
+
+    public AlphaBetaSearch(Game game, long timeBudgetMillis) {
+        this(game, timeBudgetMillis, game.getTranspositionTable());
+    }
+
+    public AlphaBetaSearch(Game game) {
+        this(game, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * Search the best move of the player to move.
+     *
+     * @param rootMoves the moves to choose from, which should be available moves of the player to move
+     * @return the best move found within the time budget, or null if there is no move to choose from
+     */
+    public Move search(Move[] rootMoves) {
+        if (rootMoves.length == 0) {
+            return null;
+        }
+        this.deadline = System.nanoTime() + this.timeBudgetNanos;
+        this.timedOut = false;
+        this.nodes = 0;
+        this.completedDepth = 0;
+
+        var moves = orderMoves(rootMoves.clone());
+        var bestMove = moves[0];
+        var pool = parallelism > 1 && moves.length > 1 ? new ForkJoinPool(parallelism) : null;
+        var workers = new ConcurrentLinkedQueue<AlphaBetaSearch>();
+        var workerOfThread = ThreadLocal.withInitial(() -> {
+            var worker = new AlphaBetaSearch(game.copyPosition(), 0, table);
+            worker.deadline = this.deadline;
+            worker.cancelled = this.cancelled;
+            workers.add(worker);
+            return worker;
+        });
+        try {
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                var rootAlpha = new AtomicInteger(-WIN_SCORE - 1);
+                var iterationBest = new Move[1];
+                if (pool == null) {
+                    for (var move : moves) {
+                        var score = -searchMove(move, depth - 1, -WIN_SCORE - 1, -rootAlpha.get(), 1);
+                        if (timedOut) {
+                            break;
+                        }
+                        if (score > rootAlpha.get()) {
+                            rootAlpha.set(score);
+                            iterationBest[0] = move;
+                        }
+                    }
+                } else {
+                    searchRootInParallel(pool, workerOfThread, moves, depth, rootAlpha, iterationBest);
+                    for (var worker : workers) {
+                        timedOut |= worker.timedOut;
+                    }
+                }
+                if (timedOut || iterationBest[0] == null) {
+                    break;
+                }
+                bestMove = iterationBest[0];
+                completedDepth = depth;
+                var alpha = rootAlpha.get();
+                if (alpha >= WIN_SCORE - MAX_DEPTH || alpha <= -WIN_SCORE + MAX_DEPTH) {
+                    // the result of the game is already known
+                    break;
+                }
+                // search the best move first in the next iteration
+                moveToFront(moves, bestMove);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            for (var worker : workers) {
+                nodes += worker.nodes;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Search one iteration of the root moves in parallel.
+     * The first move is searched by this search to get a bound, and the others are searched by workers.
+     */
+    private void searchRootInParallel(ForkJoinPool pool, ThreadLocal<AlphaBetaSearch> workerOfThread, Move[] moves,
+                                      int depth, AtomicInteger rootAlpha, Move[] iterationBest) {
+        var firstScore = -searchMove(moves[0], depth - 1, -WIN_SCORE - 1, WIN_SCORE + 1, 1);
+        if (timedOut) {
+            return;
+        }
+        rootAlpha.set(firstScore);
+        iterationBest[0] = moves[0];
+        var tasks = new ArrayList<Callable<Void>>();
+        for (int i = 1; i < moves.length; i++) {
+            var move = moves[i];
+            tasks.add(() -> {
+                workerOfThread.get().searchRootMove(move, depth, rootAlpha, iterationBest);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+    }
+
+    /**
+     * Search a root move as a worker, and record it as the best move if it beats the shared best score.
+     */
+    private void searchRootMove(Move move, int depth, AtomicInteger rootAlpha, Move[] iterationBest) {
+        if (timedOut) {
+            return;
+        }
+        this.sharedRootAlpha = rootAlpha;
+        var score = -searchMove(move, depth - 1, -WIN_SCORE - 1, -rootAlpha.get(), 1);
+        if (timedOut) {
+            return;
+        }
+        synchronized (rootAlpha) {
+            if (score > rootAlpha.get()) {
+                rootAlpha.set(score);
+                iterationBest[0] = move;
+            }
+        }
+    }
+
+    /**
+     * Stop the search from another thread as if the time budget ran out, so that it returns the best move of the
+     * deepest completed iteration. Later searches by this object also stop at once.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Limit the depth of search, so that the search may stop before the time budget runs out.
+     *
+     * @param maxDepth the largest depth to search, from 1 to 64
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(MAX_DEPTH, maxDepth));
+    }
+
+    /**
+     * Set the number of threads searching in parallel.
+     *
+     * @param parallelism number of threads, 1 for searching in the calling thread only
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @return number of nodes visited by the last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed by the last search
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Play a move, search the resulting position and take the move back.
+     *
+     * @return score of the resulting position, from the view of the player to move after the move
+     */
+    private int searchMove(Move move, int depth, int alpha, int beta, int ply) {
+        var source = move.getSource();
+        var player = game.getCurrentPlayerID();
+        var gameOverAllowed = game.getNumMoves() >= game.getConfiguration().getNumMovesProtection();
+        var token = game.makeMove(move);
+        try {
+            if (gameOverAllowed && (token.getMovedPiece() instanceof Knight
+                    && game.isCentralPlace(source.x(), source.y())
+                    || token.getCapturedPiece() != null && game.getPieceIndex().getCount(1 - player) == 0)) {
+                // the player who just moved wins
+                return -(WIN_SCORE - ply);
+            }
+            return negamax(depth, alpha, beta, ply);
+        } finally {
+            game.unmakeMove(token);
+        }
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (++nodes % CLOCK_CHECK_INTERVAL == 0 && (System.nanoTime() > deadline || cancelled.get())) {
+            timedOut = true;
+        }
+        if (timedOut) {
+            return 0;
+        }
+        var key = game.getPositionHash();
+        var entry = table.probe(key);
+        Move hashMove = null;
+        if (entry != TranspositionTable.MISS) {
+            if (TranspositionTable.depthOf(entry) >= depth) {
+                var score = fromTableScore(TranspositionTable.scoreOf(entry), ply);
+                var bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER_BOUND && score >= beta
+                        || bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+                    return score;
+                }
+            }
+            hashMove = toMove(TranspositionTable.fromOf(entry), TranspositionTable.toOf(entry));
+        }
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        if (moves.length == 0) {
+            // the player with the lower score wins, and the player to move wins a tie
+            var players = game.getConfiguration().getPlayers();
+            var player = game.getCurrentPlayerID();
+            return players[player].getScore() <= players[1 - player].getScore() ? WIN_SCORE - ply : -(WIN_SCORE - ply);
+        }
+        if (depth <= 0) {
+            return evaluate();
+        }
+        orderMoves(moves);
+        if (hashMove != null) {
+            moveToFront(moves, hashMove);
+        }
+        var originalAlpha = alpha;
+        Move bestMove = null;
+        for (var move : moves) {
+            if (ply == 1 && sharedRootAlpha != null) {
+                // another worker may have found a better root move, which narrows the window
+                beta = Math.min(beta, -sharedRootAlpha.get());
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+            var score = -searchMove(move, depth - 1, -beta, -alpha, ply + 1);
+            if (timedOut) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        int bound;
+        if (alpha >= beta) {
+            bound = TranspositionTable.LOWER_BOUND;
+        } else if (alpha > originalAlpha) {
+            bound = TranspositionTable.EXACT;
+        } else {
+            bound = TranspositionTable.UPPER_BOUND;
+        }
+        var size = game.getConfiguration().getSize();
+        table.store(key, depth, bound, toTableScore(alpha, ply),
+                bestMove == null ? TranspositionTable.NO_SQUARE : bestMove.getSource().x() * size + bestMove.getSource().y(),
+                bestMove == null ? TranspositionTable.NO_SQUARE
+                        : bestMove.getDestination().x() * size + bestMove.getDestination().y());
+        return alpha;
+    }
+
+    /**
+     * Scores of wins are stored relative to the position rather than the root, so that they stay correct when the
+     * position is reached at another ply.
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_DEPTH * 2) {
+            return score + ply;
+        } else if (score <= -WIN_SCORE + MAX_DEPTH * 2) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTableScore(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_DEPTH * 2) {
+            return score - ply;
+        } else if (score <= -WIN_SCORE + MAX_DEPTH * 2) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private Move toMove(int from, int to) {
+        if (from == TranspositionTable.NO_SQUARE || to == TranspositionTable.NO_SQUARE) {
+            return null;
+        }
+        var size = game.getConfiguration().getSize();
+        return Move.of(from / size, from % size, to / size, to % size);
+    }
+
+    /**
+     * Evaluate the position from the view of the player to move, by the {@link Evaluator} of the game.
+     *
+     * @return the score of the position
+     */
+    private int evaluate() {
+        return game.getEvaluator().evaluate(game.getCurrentPlayerID());
+    }
+
+    /**
+     * Order moves so that captures are searched first, which makes more cutoffs.
+     *
+     * @param moves the moves, which are reordered in place
+     * @return the moves
+     */
+    private Move[] orderMoves(Move[] moves) {
+        var numCaptures = 0;
+        for (int i = 0; i < moves.length; i++) {
+            if (game.getPiece(moves[i].getDestination()) != null) {
+                var capture = moves[i];
+                moves[i] = moves[numCaptures];
+                moves[numCaptures++] = capture;
+            }
+        }
+        return moves;
+    }
+
+    private static void moveToFront(Move[] moves, Move move) {
+        var index = Arrays.asList(moves).indexOf(move);
+        if (index > 0) {
+            System.arraycopy(moves, 0, moves, 1, index);
+            moves[0] = move;
+        }
+    }
+}
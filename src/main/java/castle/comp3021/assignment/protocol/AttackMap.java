@@ -0,0 +1,188 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.KnightMoveTable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Squares attacked by the knights and archers of each player, i.e. the squares where a piece of the other player could
+ * be captured, updated incrementally as pieces are put and removed.
+ * <p>
+ * A knight attacks the destinations of its knight moves whose blocking square is empty (see
+ * {@link castle.comp3021.assignment.piece.KnightBlockRule}). An archer attacks, in each direction, the squares beyond
+ * its screen (the first piece on the way) up to and including the next piece, since a piece standing on any of them
+ * would be the first piece after the screen. Squares are attacked whether they are empty, occupied by the other player
+ * or occupied by the same player (i.e. defended), and the protection window and the capacity of the critical region are
+ * not taken into account.
+ * <p>
+ * The map counts the attackers of each square per player. Putting or removing a piece on a square only changes the
+ * attacks of the piece itself, of the knights whose blocking square it is, and of the archers that are one of the first
+ * two pieces in each direction from the square, so only these attacks are recounted. The attack map of a game is
+ * maintained by {@link Game#setPiece(int, int, Piece)} once it is built, see {@link Game#getAttackMap()}.
+ */
+public class AttackMap {
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private final int size;
+
+    private final KnightMoveTable knightMoves;
+
+    /**
+     * Number of attackers of each square, indexed by [player][square]
+     */
+    private final int[][] counts;
+
+    /**
+     * Build the attack map of the pieces on a gameboard.
+     *
+     * @param bitBoard the pieces on the gameboard
+     */
+    public AttackMap(@NotNull BitBoard bitBoard) {
+        this.size = bitBoard.getSize();
+        this.knightMoves = KnightMoveTable.forSize(size);
+        this.counts = new int[BitBoard.NUM_PLAYERS][size * size];
+        for (int square = 0; square < size * size; square++) {
+            updatePiece(bitBoard, square, 1);
+        }
+    }
+
+    /**
+     * @param player the attacking player
+     * @param square the square
+     * @return number of knights and archers of the player attacking the square
+     */
+    public int countAttackers(int player, int square) {
+        return counts[player][square];
+    }
+
+    public boolean isAttacked(int player, int square) {
+        return counts[player][square] > 0;
+    }
+
+    /**
+     * Check whether the piece on a square can be captured by the other player and is not defended by its own player.
+     *
+     * @param bitBoard the pieces on the gameboard, which should be the pieces of this map
+     * @param square   the square
+     * @return whether the square has a piece that is hanging
+     */
+    public boolean isHanging(@NotNull BitBoard bitBoard, int square) {
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            if (bitBoard.isOccupiedBy(player, square)) {
+                return isAttacked(1 - player, square) && !isAttacked(player, square);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the attacks depending on a square, before the piece on the square is changed.
+     *
+     * @param bitBoard the pieces on the gameboard before the change
+     * @param square   the square to change
+     */
+    void beforeChange(BitBoard bitBoard, int square) {
+        updateAffected(bitBoard, square, -1);
+    }
+
+    /**
+     * Add back the attacks depending on a square, after the piece on the square is changed.
+     *
+     * @param bitBoard the pieces on the gameboard after the change
+     * @param square   the changed square
+     */
+    void afterChange(BitBoard bitBoard, int square) {
+        updateAffected(bitBoard, square, 1);
+    }
+
+    private void updateAffected(BitBoard bitBoard, int square, int delta) {
+        updatePiece(bitBoard, square, delta);
+        var x = square / size;
+        var y = square % size;
+        if (bitBoard.isEmpty(square)) {
+            // knights whose move to (x + dx, y +- 1) or (x +- 1, y + dy) passes the square
+            for (int d = -1; d <= 1; d += 2) {
+                updateKnightOverLeg(bitBoard, x - d, y, x + d, y - 1, delta);
+                updateKnightOverLeg(bitBoard, x - d, y, x + d, y + 1, delta);
+                updateKnightOverLeg(bitBoard, x, y - d, x - 1, y + d, delta);
+                updateKnightOverLeg(bitBoard, x, y - d, x + 1, y + d, delta);
+            }
+        }
+        for (var direction : DIRECTIONS) {
+            // the first two pieces in the direction, whose rays towards the square pass it
+            var toX = x;
+            var toY = y;
+            for (int found = 0; found < 2; found++) {
+                do {
+                    toX += direction[0];
+                    toY += direction[1];
+                } while (isInside(toX, toY) && bitBoard.isEmpty(toX, toY));
+                if (!isInside(toX, toY)) {
+                    break;
+                }
+                var archer = toX * size + toY;
+                for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+                    if (bitBoard.isOccupiedBy(player, BitBoard.ARCHER, archer)) {
+                        updateRay(bitBoard, player, toX, toY, -direction[0], -direction[1], delta);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add or remove the attacks of the piece on a square, if any.
+     */
+    private void updatePiece(BitBoard bitBoard, int square, int delta) {
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            if (bitBoard.isOccupiedBy(player, BitBoard.KNIGHT, square)) {
+                var destinations = knightMoves.getDestinations(square);
+                var blocks = knightMoves.getBlocks(square);
+                for (int i = 0; i < destinations.length; i++) {
+                    if (bitBoard.isEmpty(blocks[i])) {
+                        counts[player][destinations[i]] += delta;
+                    }
+                }
+            } else if (bitBoard.isOccupiedBy(player, BitBoard.ARCHER, square)) {
+                for (var direction : DIRECTIONS) {
+                    updateRay(bitBoard, player, square / size, square % size, direction[0], direction[1], delta);
+                }
+            }
+        }
+    }
+
+    private void updateKnightOverLeg(BitBoard bitBoard, int knightX, int knightY, int toX, int toY, int delta) {
+        if (!isInside(knightX, knightY) || !isInside(toX, toY)) {
+            return;
+        }
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            if (bitBoard.isOccupiedBy(player, BitBoard.KNIGHT, knightX * size + knightY)) {
+                counts[player][toX * size + toY] += delta;
+            }
+        }
+    }
+
+    /**
+     * Add or remove the attacks of an archer in one direction.
+     */
+    private void updateRay(BitBoard bitBoard, int player, int x, int y, int stepX, int stepY, int delta) {
+        // the screen
+        do {
+            x += stepX;
+            y += stepY;
+        } while (isInside(x, y) && bitBoard.isEmpty(x, y));
+        x += stepX;
+        y += stepY;
+        while (isInside(x, y)) {
+            counts[player][x * size + y] += delta;
+            if (!bitBoard.isEmpty(x, y)) {
+                break;
+            }
+            x += stepX;
+            y += stepY;
+        }
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+}
@@ -5,4 +5,5 @@ public enum Behavior {
     GREEDY,
     BLOCKING,
     CAPTURING,
+    SAFE_CAPTURING,
 }
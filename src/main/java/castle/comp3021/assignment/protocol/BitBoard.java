@@ -0,0 +1,310 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of the gameboard.
+ * <p>
+ * Every square (x, y) is mapped to the bit {@code x * size + y}, which follows the layout of {@link Game#board}.
+ * The bits are packed into {@code long[]} words, so a 26x26 board fits in 11 longs.
+ * Occupancy is stored per player and per piece type, so that queries like "all enemy knights",
+ * "is this square empty" or "pieces in the critical rows" become mask operations.
+ * <p>
+ * A bitboard does not know which {@link Piece} object is on a square, {@link Game#board} is still the place
+ * to look up piece objects. The bitboard of a game is maintained by {@link Game} and should be treated as read-only
+ * by other classes, including the arrays returned by its getters.
+ */
+public class BitBoard implements Cloneable {
+    /**
+     * Piece type of {@link Knight}
+     */
+    public static final int KNIGHT = 0;
+
+    /**
+     * Piece type of {@link Archer}
+     */
+    public static final int ARCHER = 1;
+
+    /**
+     * Piece type of any other piece
+     */
+    public static final int OTHER = 2;
+
+    public static final int NUM_TYPES = 3;
+
+    public static final int NUM_PLAYERS = 2;
+
+    /**
+     * Size of gameboard.
+     */
+    private final int size;
+
+    /**
+     * Number of longs needed to store one bit for each square.
+     */
+    private final int numWords;
+
+    /**
+     * Occupancy of each player and each piece type, indexed by [player][type][word].
+     */
+    private long[][][] pieces;
+
+    /**
+     * Occupancy of each player, indexed by [player][word].
+     */
+    private long[][] playerPieces;
+
+    /**
+     * Occupancy of both players.
+     */
+    private long[] occupied;
+
+    /**
+     * Mask of the squares inside the critical region.
+     */
+    private final long[] criticalRegion;
+
+    public BitBoard(@NotNull Configuration configuration) {
+        this.size = configuration.getSize();
+        this.numWords = (size * size + 63) >>> 6;
+        this.pieces = new long[NUM_PLAYERS][NUM_TYPES][numWords];
+        this.playerPieces = new long[NUM_PLAYERS][numWords];
+        this.occupied = new long[numWords];
+        var rowsFromCenter = configuration.getCriticalRegionSize() / 2;
+        this.criticalRegion = this.rowMask(size / 2 - rowsFromCenter, size / 2 + rowsFromCenter);
+    }
+
+    /**
+     * Get the type of piece used to index the bitboard.
+     *
+     * @param piece the piece
+     * @return one of {@link BitBoard#KNIGHT}, {@link BitBoard#ARCHER} and {@link BitBoard#OTHER}
+     */
+    public static int typeOf(@NotNull Piece piece) {
+        if (piece instanceof Knight) {
+            return KNIGHT;
+        }
+        if (piece instanceof Archer) {
+            return ARCHER;
+        }
+        return OTHER;
+    }
+
+    /* Square indexing start */
+    public int getSize() {
+        return size;
+    }
+
+    public int getNumWords() {
+        return numWords;
+    }
+
+    public int index(int x, int y) {
+        return x * size + y;
+    }
+
+    public int x(int square) {
+        return square / size;
+    }
+
+    public int y(int square) {
+        return square % size;
+    }
+    /* Square indexing end */
+
+    /**
+     * Mark a square as occupied by a piece of given player and type.
+     *
+     * @param player index of player in {@link Configuration#getPlayers()}
+     * @param type   type of piece, see {@link BitBoard#typeOf(Piece)}
+     * @param square index of square
+     */
+    public void set(int player, int type, int square) {
+        var word = square >>> 6;
+        var bit = 1L << square;
+        pieces[player][type][word] |= bit;
+        playerPieces[player][word] |= bit;
+        occupied[word] |= bit;
+    }
+
+    /**
+     * Mark a square previously occupied by a piece of given player and type as empty.
+     *
+     * @param player index of player in {@link Configuration#getPlayers()}
+     * @param type   type of piece, see {@link BitBoard#typeOf(Piece)}
+     * @param square index of square
+     */
+    public void clear(int player, int type, int square) {
+        var word = square >>> 6;
+        var bit = ~(1L << square);
+        pieces[player][type][word] &= bit;
+        playerPieces[player][word] &= bit;
+        occupied[word] &= bit;
+    }
+
+    /* Queries start */
+    public boolean isEmpty(int square) {
+        return (occupied[square >>> 6] & (1L << square)) == 0;
+    }
+
+    public boolean isEmpty(int x, int y) {
+        return isEmpty(index(x, y));
+    }
+
+    public boolean isOccupiedBy(int player, int square) {
+        return (playerPieces[player][square >>> 6] & (1L << square)) != 0;
+    }
+
+    public boolean isOccupiedBy(int player, int type, int square) {
+        return (pieces[player][type][square >>> 6] & (1L << square)) != 0;
+    }
+
+    /**
+     * @return mask of all occupied squares
+     */
+    public long[] getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * @param player index of player
+     * @return mask of all squares occupied by the player
+     */
+    public long[] getPieces(int player) {
+        return playerPieces[player];
+    }
+
+    /**
+     * @param player index of player
+     * @param type   type of piece
+     * @return mask of all squares occupied by the given type of pieces of the player
+     */
+    public long[] getPieces(int player, int type) {
+        return pieces[player][type];
+    }
+
+    /**
+     * @return mask of the squares inside the critical region
+     */
+    public long[] getCriticalRegion() {
+        return criticalRegion;
+    }
+
+    public boolean isInCriticalRegion(int square) {
+        return (criticalRegion[square >>> 6] & (1L << square)) != 0;
+    }
+
+    public int countPieces(int player) {
+        return count(playerPieces[player]);
+    }
+
+    public int countPieces(int player, int type) {
+        return count(pieces[player][type]);
+    }
+
+    /**
+     * Count the knights of a player inside the critical region.
+     *
+     * @param player index of player
+     * @return number of knights inside the critical region
+     */
+    public int countKnightsInCriticalRegion(int player) {
+        return countIntersection(pieces[player][KNIGHT], criticalRegion);
+    }
+    /* Queries end */
+
+    /* Mask operations start */
+
+    /**
+     * Build a mask containing all squares whose y coordinate is within the given range (inclusive).
+     *
+     * @param fromRow lowest row
+     * @param toRow   highest row
+     * @return the mask
+     */
+    public long[] rowMask(int fromRow, int toRow) {
+        var mask = new long[numWords];
+        for (int x = 0; x < size; x++) {
+            for (int y = Math.max(0, fromRow); y <= Math.min(size - 1, toRow); y++) {
+                var square = index(x, y);
+                mask[square >>> 6] |= 1L << square;
+            }
+        }
+        return mask;
+    }
+
+    public static int count(long[] mask) {
+        var count = 0;
+        for (var word : mask) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static int countIntersection(long[] a, long[] b) {
+        var count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Find the next set bit in a mask, used to iterate over the squares in a mask:
+     * {@code for (int sq = nextSquare(mask, 0); sq >= 0; sq = nextSquare(mask, sq + 1))}
+     *
+     * @param mask the mask
+     * @param from the square to start searching from (inclusive)
+     * @return the index of next set square, or -1 if there is none
+     */
+    public static int nextSquare(long[] mask, int from) {
+        var word = from >>> 6;
+        if (word >= mask.length) {
+            return -1;
+        }
+        var bits = mask[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == mask.length) {
+                return -1;
+            }
+            bits = mask[word];
+        }
+    }
+    /* Mask operations end */
+
+    @Override
+    public BitBoard clone() throws CloneNotSupportedException {
+        var cloned = (BitBoard) super.clone();
+        cloned.pieces = new long[NUM_PLAYERS][NUM_TYPES][];
+        cloned.playerPieces = new long[NUM_PLAYERS][];
+        for (int player = 0; player < NUM_PLAYERS; player++) {
+            for (int type = 0; type < NUM_TYPES; type++) {
+                cloned.pieces[player][type] = this.pieces[player][type].clone();
+            }
+            cloned.playerPieces[player] = this.playerPieces[player].clone();
+        }
+        cloned.occupied = this.occupied.clone();
+        return cloned;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitBoard bitBoard = (BitBoard) o;
+        return size == bitBoard.size &&
+                Arrays.deepEquals(pieces, bitBoard.pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(pieces);
+    }
+}
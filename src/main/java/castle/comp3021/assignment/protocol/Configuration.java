@@ -2,13 +2,14 @@ package castle.comp3021.assignment.protocol;
 
 import castle.comp3021.assignment.piece.Archer;
 import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.piece.RulePipeline;
 import castle.comp3021.assignment.player.ComputerPlayer;
 import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 
 /**
@@ -25,6 +26,7 @@ public class Configuration implements Cloneable {
      */
     protected final static int DEFAULTSIZE = 9;
     protected final static int DEFAULTPROTECTMOVE = 1;
+    protected final static long DEFAULTTURNBUDGET = 1000;
 
     /**
      * Size of gameboard.
@@ -46,9 +48,14 @@ public class Configuration implements Cloneable {
     protected int criticalRegionCapacity;
 
     /**
-     * Mapping from piece object to thread object of the piece.
+     * Mapping from piece object to the worker of the piece, see {@link PieceExecutor}.
      */
-    protected Map<Piece, Thread> pieceThreadMap;
+    protected Map<Piece, PieceWorker> pieceWorkerMap;
+
+    /**
+     * Executor starting the workers of pieces added by {@link Configuration#addInitialPiece(Piece, Place)}.
+     */
+    protected PieceExecutor pieceExecutor = PieceExecutor.getDefault();
 
     /**
      * All players in the game.
@@ -69,6 +76,16 @@ public class Configuration implements Cloneable {
 
     protected int numMovesProtection;
 
+    /**
+     * Time given to the pieces of a computer player to propose candidate moves in one turn, in milliseconds.
+     */
+    protected long turnBudgetMillis = DEFAULTTURNBUDGET;
+
+    /**
+     * The rules compiled for {@link this#numMovesProtection}, built lazily by {@link this#getRulePipeline()}.
+     */
+    private volatile RulePipeline rulePipeline;
+
     /**
      * Add configuration validation for critical region
      * - If {@link this#criticalRegionSize} is smaller than 1, throw {@link InvalidConfigurationError}
@@ -133,7 +150,7 @@ public class Configuration implements Cloneable {
         this.size = size;
         this.criticalRegionSize = criticalRegionSize;
         this.criticalRegionCapacity = criticalRegionCapacity;
-        this.pieceThreadMap = new HashMap<>();
+        this.pieceWorkerMap = new HashMap<>();
         // We only have 2 players
         this.players = players;
 
@@ -151,7 +168,7 @@ public class Configuration implements Cloneable {
             }
         }
         // calculate the central place
-        this.centralPlace = new Place(size / 2, size / 2);
+        this.centralPlace = Place.of(size / 2, size / 2);
         this.validateConfiguration();
     }
 
@@ -184,7 +201,7 @@ public class Configuration implements Cloneable {
      * - create a thread for this piece
      * - start the thread
      * Hint:
-     *      remember to record this thread to {@link Configuration#pieceThreadMap}
+     *      remember to record the worker of this piece to {@link Configuration#pieceWorkerMap}
      * @param piece piece to be added
      * @param place place to put the piece
      */
@@ -205,16 +222,14 @@ public class Configuration implements Cloneable {
         this.initialBoard[place.x()][place.y()] = piece;
 
         // TODO
-        // start piece thread and update {@link Configuration#pieceThreadMap} here
+        // start piece worker and update {@link Configuration#pieceWorkerMap} here
         if (piece.getPlayer() instanceof ComputerPlayer){
-            Thread thread = new Thread(piece);
-            this.pieceThreadMap.put(piece, thread);
-            thread.start();
+            this.pieceWorkerMap.put(piece, this.pieceExecutor.start(piece));
         }
     }
 
     public void addInitialPiece(Piece piece, int x, int y) {
-        this.addInitialPiece(piece, new Place(x, y));
+        this.addInitialPiece(piece, Place.of(x, y));
     }
 
     public int getSize() {
@@ -245,16 +260,91 @@ public class Configuration implements Cloneable {
         return numMovesProtection;
     }
 
+    public long getTurnBudgetMillis() {
+        return turnBudgetMillis;
+    }
+
+    /**
+     * Set the time given to the pieces of a computer player to propose candidate moves in one turn, e.g. a few tens of
+     * milliseconds for self-play or seconds for analysis. Proposals arriving later are discarded.
+     *
+     * @param turnBudgetMillis the turn budget in milliseconds, which must be positive
+     */
+    public void setTurnBudgetMillis(long turnBudgetMillis) {
+        if (turnBudgetMillis <= 0) {
+            throw new InvalidConfigurationError("turn budget must be positive");
+        }
+        this.turnBudgetMillis = turnBudgetMillis;
+    }
+
+    /**
+     * Get the rules of this configuration compiled into a {@link RulePipeline}.
+     * The pipeline is compiled once and recompiled only when {@link this#numMovesProtection} changes.
+     *
+     * @return the rule pipeline
+     */
+    public RulePipeline getRulePipeline() {
+        var pipeline = this.rulePipeline;
+        if (pipeline == null || pipeline.getNumMovesProtection() != this.numMovesProtection) {
+            // racing threads may compile the same pipeline twice, which is harmless since pipelines are immutable
+            pipeline = new RulePipeline(this.numMovesProtection);
+            this.rulePipeline = pipeline;
+        }
+        return pipeline;
+    }
+
+    public PieceExecutor getPieceExecutor() {
+        return pieceExecutor;
+    }
+
+    /**
+     * Set the executor of the pieces added afterwards. Pieces already added keep their threads.
+     *
+     * @param pieceExecutor the executor
+     */
+    public void setPieceExecutor(PieceExecutor pieceExecutor) {
+        this.pieceExecutor = pieceExecutor;
+    }
+
+    public Map<Piece, PieceWorker> getPieceWorkerMap() {
+        return pieceWorkerMap;
+    }
+
+    /**
+     * Get the worker of a piece, which is woken after pausing or terminating the piece so that it reacts at once.
+     *
+     * @param piece the piece
+     * @return the worker of the piece, or null if the piece does not belong to a computer player
+     */
+    public PieceWorker getPieceWorker(Piece piece) {
+        return pieceWorkerMap.get(piece);
+    }
+
+    /**
+     * @return the threads of the pieces which have threads of their own, i.e. not run by
+     * {@link PieceExecutor.Mode#POOLED}
+     */
     public Map<Piece, Thread> getPieceThreadMap() {
+        var pieceThreadMap = new HashMap<Piece, Thread>();
+        for (var entry : this.pieceWorkerMap.entrySet()) {
+            if (entry.getValue().getThread() != null) {
+                pieceThreadMap.put(entry.getKey(), entry.getValue().getThread());
+            }
+        }
         return pieceThreadMap;
     }
 
+    /**
+     * @param piece the piece
+     * @return the thread of the piece, or null if the piece has no thread of its own
+     */
     public Thread getPieceThread(Piece piece) {
-        return pieceThreadMap.get(piece);
+        var worker = pieceWorkerMap.get(piece);
+        return worker == null ? null : worker.getThread();
     }
 
     public List<Thread> getAllThreads() {
-        return this.pieceThreadMap.entrySet().parallelStream().map(Map.Entry::getValue).collect(Collectors.toList());
+        return new ArrayList<>(this.getPieceThreadMap().values());
     }
 
     @Override
@@ -283,6 +373,26 @@ public class Configuration implements Cloneable {
         return cloned;
     }
 
+    /**
+     * Copy this configuration for exploring positions, e.g. by {@link Game#copyPosition()}.
+     * Unlike {@link Configuration#clone()}, only the players are cloned so that their scores can change
+     * independently, and pieces on the initial board are left untouched.
+     *
+     * @return the copy
+     */
+    Configuration copyWithClonedPlayers() {
+        try {
+            var copied = (Configuration) super.clone();
+            copied.players = new Player[this.players.length];
+            for (int i = 0; i < this.players.length; i++) {
+                copied.players[i] = this.players[i].clone();
+            }
+            return copied;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     public void setSize(int size) {
         this.size = size;
     }
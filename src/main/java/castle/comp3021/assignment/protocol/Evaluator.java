@@ -0,0 +1,149 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Static evaluation of positions, updated incrementally as pieces are put and removed.
+ * <p>
+ * The value of a position for a player is the sum of the values of the pieces of the player, and the value of a piece
+ * only depends on its type and its square:
+ * - material, see {@link Evaluator#KNIGHT_VALUE}, {@link Evaluator#ARCHER_VALUE} and {@link Evaluator#OTHER_VALUE};
+ * - for knights, the proximity to the central place, a bonus on the central place (from which the knight may win by
+ * leaving it), a bonus in the critical region, and the number of knight moves from the square that stay on the
+ * gameboard as an estimate of mobility.
+ * <p>
+ * The values are precomputed per square, so putting or removing a piece updates the value of its player in O(1).
+ * The evaluator of a game is maintained by {@link Game#setPiece(int, int, Piece)} together with the bitboard, see
+ * {@link Game#getEvaluator()}.
+ */
+public class Evaluator implements Cloneable {
+    public static final int KNIGHT_VALUE = 100;
+
+    public static final int ARCHER_VALUE = 80;
+
+    public static final int OTHER_VALUE = 50;
+
+    /**
+     * Value of each step a knight is closer to the central place than the farthest corner
+     */
+    public static final int PROXIMITY_VALUE = 2;
+
+    /**
+     * Value of a knight standing on the central place, which may win by leaving it.
+     */
+    public static final int CENTRAL_KNIGHT_VALUE = 150;
+
+    /**
+     * Value of a knight in the critical region
+     */
+    public static final int CRITICAL_REGION_VALUE = 10;
+
+    /**
+     * Value of each knight move from the square of a knight that stays on the gameboard
+     */
+    public static final int MOBILITY_VALUE = 2;
+
+    private static final int[] KNIGHT_OFFSET_X = {1, 2, 2, 1, -1, -2, -2, -1};
+    private static final int[] KNIGHT_OFFSET_Y = {2, 1, -1, -2, -2, -1, 1, 2};
+
+    /**
+     * Value of a piece of each type on each square, shared by copies of the evaluator
+     */
+    private final int[][] pieceSquareValues;
+
+    /**
+     * Value of the pieces of each player
+     */
+    private int[] values = new int[BitBoard.NUM_PLAYERS];
+
+    /**
+     * Create an evaluator of an empty gameboard.
+     *
+     * @param configuration the configuration of the game
+     */
+    public Evaluator(@NotNull Configuration configuration) {
+        var size = configuration.getSize();
+        var center = configuration.getCentralPlace();
+        var bitBoard = new BitBoard(configuration);
+        this.pieceSquareValues = new int[BitBoard.NUM_TYPES][size * size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var square = bitBoard.index(x, y);
+                var distance = Math.abs(x - center.x()) + Math.abs(y - center.y());
+                var knightValue = KNIGHT_VALUE + PROXIMITY_VALUE * (size - distance);
+                if (distance == 0) {
+                    knightValue += CENTRAL_KNIGHT_VALUE;
+                }
+                if (bitBoard.isInCriticalRegion(square)) {
+                    knightValue += CRITICAL_REGION_VALUE;
+                }
+                for (int i = 0; i < KNIGHT_OFFSET_X.length; i++) {
+                    var toX = x + KNIGHT_OFFSET_X[i];
+                    var toY = y + KNIGHT_OFFSET_Y[i];
+                    if (toX >= 0 && toX < size && toY >= 0 && toY < size) {
+                        knightValue += MOBILITY_VALUE;
+                    }
+                }
+                this.pieceSquareValues[BitBoard.KNIGHT][square] = knightValue;
+                this.pieceSquareValues[BitBoard.ARCHER][square] = ARCHER_VALUE;
+                this.pieceSquareValues[BitBoard.OTHER][square] = OTHER_VALUE;
+            }
+        }
+    }
+
+    /**
+     * @param type   type of piece, see {@link BitBoard#typeOf(Piece)}
+     * @param square the square of the piece
+     * @return the value of the piece on the square
+     */
+    public int valueOf(int type, int square) {
+        return pieceSquareValues[type][square];
+    }
+
+    /**
+     * Add the value of a piece put on the gameboard.
+     *
+     * @param player index of player
+     * @param type   type of piece, see {@link BitBoard#typeOf(Piece)}
+     * @param square the square of the piece
+     */
+    public void add(int player, int type, int square) {
+        values[player] += pieceSquareValues[type][square];
+    }
+
+    /**
+     * Subtract the value of a piece removed from the gameboard.
+     *
+     * @param player index of player
+     * @param type   type of piece, see {@link BitBoard#typeOf(Piece)}
+     * @param square the square of the piece
+     */
+    public void remove(int player, int type, int square) {
+        values[player] -= pieceSquareValues[type][square];
+    }
+
+    /**
+     * @param player index of player
+     * @return the value of the pieces of the player
+     */
+    public int getValue(int player) {
+        return values[player];
+    }
+
+    /**
+     * Evaluate the position from the view of a player.
+     *
+     * @param player index of player
+     * @return the value of the player minus the value of the other player
+     */
+    public int evaluate(int player) {
+        return values[player] - values[1 - player];
+    }
+
+    @Override
+    public Evaluator clone() throws CloneNotSupportedException {
+        var cloned = (Evaluator) super.clone();
+        cloned.values = this.values.clone();
+        return cloned;
+    }
+}
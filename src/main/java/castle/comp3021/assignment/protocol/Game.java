@@ -1,5 +1,6 @@
 package castle.comp3021.assignment.protocol;
 
+import castle.comp3021.assignment.piece.KnightMoveTable;
 import castle.comp3021.assignment.protocol.exception.UndoException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -37,6 +38,68 @@ public abstract class Game implements Cloneable {
      */
     protected int numMoves = 0;
 
+    /**
+     * Bitboard view of {@link Game#board}.
+     * It is built lazily from {@link Game#board} and then kept in sync by {@link Game#setPiece(int, int, Piece)}.
+     */
+    private BitBoard bitBoard;
+
+    /**
+     * Index from each player to the places of the pieces of the player, maintained together with
+     * {@link Game#bitBoard}.
+     */
+    private PieceIndex pieceIndex;
+
+    /**
+     * Number of knights of each player in the critical region, maintained together with {@link Game#bitBoard}.
+     */
+    private int[] criticalRegionKnights;
+
+    /**
+     * Zobrist hash of the pieces on the gameboard, maintained together with {@link Game#bitBoard}.
+     * See {@link Zobrist}.
+     */
+    private long piecesHash;
+
+    /**
+     * Static evaluation of the pieces on the gameboard, maintained together with {@link Game#bitBoard}.
+     */
+    private Evaluator evaluator;
+
+    /**
+     * Squares attacked by each player, built when first used and then maintained together with {@link Game#bitBoard}.
+     * It is null until used, so that searches not using it do not pay for updating it.
+     */
+    private volatile AttackMap attackMap;
+
+    /**
+     * Cache of search results of this game, created when first used.
+     */
+    private TranspositionTable transpositionTable;
+
+    /**
+     * Knight distances to the central place of the pieces with hash {@link KnightCenterDistances#piecesHash},
+     * computed when first used.
+     */
+    private volatile KnightCenterDistances knightCenterDistances;
+
+    private static final class KnightCenterDistances {
+        private final long piecesHash;
+
+        private final int[] distances;
+
+        private KnightCenterDistances(long piecesHash, int[] distances) {
+            this.piecesHash = piecesHash;
+            this.distances = distances;
+        }
+    }
+
+    /**
+     * The board array that {@link Game#bitBoard} and {@link Game#pieceIndex} were built from.
+     * When {@link Game#board} is replaced (e.g. when the game starts or a move is undone), the bitboard is rebuilt.
+     */
+    private volatile Piece[][] indexedBoard;
+
     public Game(Configuration configuration) {
         this.configuration = configuration;
         this.board = configuration.getInitialBoard();
@@ -107,7 +170,7 @@ public abstract class Game implements Cloneable {
             for (int col = 0; col < size; col++) {
                 var piece = this.getPiece(col, row);
                 if (piece == null) {
-                    if (this.getCentralPlace().equals(new Place(col, row))) {
+                    if (this.isCentralPlace(col, row)) {
                         rowContent.add("x");
                     } else {
                         rowContent.add(".");
@@ -191,7 +254,7 @@ public abstract class Game implements Cloneable {
             for (int col = 0; col < size; col++) {
                 var piece = this.getPiece(col, row);
                 if (piece == null) {
-                    if (this.getCentralPlace().equals(new Place(col, row))) {
+                    if (this.isCentralPlace(col, row)) {
                         rowContent.add("x");
                     } else {
                         rowContent.add(".");
@@ -248,17 +311,300 @@ public abstract class Game implements Cloneable {
      * @return the piece
      */
     public @Nullable Piece getPiece(@NotNull Place place) {
-        if (place.x() < 0 || place.x() >= this.configuration.getSize()) {
+        return this.getPiece(place.x(), place.y());
+    }
+
+    /**
+     * Get the piece in the place (x, y), without allocating a {@link Place}.
+     *
+     * @param x x coordinate of the place
+     * @param y y coordinate of the place
+     * @return the piece, or null if there is no piece or the place is outside the gameboard
+     */
+    public @Nullable Piece getPiece(int x, int y) {
+        var size = this.configuration.getSize();
+        if (x < 0 || x >= size || y < 0 || y >= size) {
             return null;
         }
-        if (place.y() < 0 || place.y() >= this.configuration.getSize()) {
-            return null;
+        return this.board[x][y];
+    }
+
+    /**
+     * Check whether the place (x, y) is the central place, without allocating a {@link Place}.
+     *
+     * @param x x coordinate of the place
+     * @param y y coordinate of the place
+     * @return whether the place is the central place
+     */
+    public boolean isCentralPlace(int x, int y) {
+        var centralPlace = this.getCentralPlace();
+        return centralPlace.x() == x && centralPlace.y() == y;
+    }
+
+    /**
+     * Put a piece in the place (x, y), or clear the place if piece is null.
+     * All modifications to {@link Game#board} should go through this method, so that the bitboard and the piece index
+     * stay in sync.
+     *
+     * @param x     x coordinate of the place
+     * @param y     y coordinate of the place
+     * @param piece the piece to put, or null
+     */
+    protected void setPiece(int x, int y, @Nullable Piece piece) {
+        var previous = this.board[x][y];
+        this.board[x][y] = piece;
+        if (this.indexedBoard != this.board) {
+            // derived board state is not built yet, it will be built from the board when needed
+            return;
+        }
+        var square = this.bitBoard.index(x, y);
+        var currentAttackMap = this.attackMap;
+        if (currentAttackMap != null) {
+            currentAttackMap.beforeChange(this.bitBoard, square);
+        }
+        if (previous != null) {
+            var player = this.getPlayerIndex(previous.getPlayer());
+            var type = BitBoard.typeOf(previous);
+            this.bitBoard.clear(player, type, square);
+            this.pieceIndex.remove(player, square);
+            if (type == BitBoard.KNIGHT && this.bitBoard.isInCriticalRegion(square)) {
+                this.criticalRegionKnights[player]--;
+            }
+            this.piecesHash ^= Zobrist.pieceKey(player, type, square);
+            this.evaluator.remove(player, type, square);
+        }
+        if (piece != null) {
+            var player = this.getPlayerIndex(piece.getPlayer());
+            var type = BitBoard.typeOf(piece);
+            this.bitBoard.set(player, type, square);
+            this.pieceIndex.add(player, square);
+            if (type == BitBoard.KNIGHT && this.bitBoard.isInCriticalRegion(square)) {
+                this.criticalRegionKnights[player]++;
+            }
+            this.piecesHash ^= Zobrist.pieceKey(player, type, square);
+            this.evaluator.add(player, type, square);
+        }
+        if (currentAttackMap != null) {
+            currentAttackMap.afterChange(this.bitBoard, square);
         }
-        return this.board[place.x()][place.y()];
     }
 
-    public @Nullable Piece getPiece(int x, int y) {
-        return this.getPiece(new Place(x, y));
+    /**
+     * Make a move of the player to move without any console output, so that positions can be explored in place
+     * instead of cloning the game.
+     * The piece is moved (capturing the piece at the destination if any), the score of the player is updated the same
+     * way as {@link Game#updateScore(Player, Piece, Move)}, and the number of moves and the current player advance.
+     * Rules are not checked, so the move should be one of the available moves.
+     *
+     * @param move the move to make
+     * @return the token to take back the move by {@link Game#unmakeMove(UndoToken)}
+     */
+    public UndoToken makeMove(@NotNull Move move) {
+        var source = move.getSource();
+        var destination = move.getDestination();
+        var players = this.configuration.getPlayers();
+        var mover = players[this.numMoves % players.length];
+        var movedPiece = this.board[source.x()][source.y()];
+        var token = new UndoToken(move, movedPiece, this.board[destination.x()][destination.y()], mover,
+                mover.getScore(), this.numMoves, this.currentPlayer);
+        this.setPiece(destination.x(), destination.y(), movedPiece);
+        this.setPiece(source.x(), source.y(), null);
+        mover.setScore(mover.getScore() + Math.abs(source.x() - destination.x())
+                + Math.abs(source.y() - destination.y()));
+        this.numMoves++;
+        this.currentPlayer = players[this.numMoves % players.length];
+        return token;
+    }
+
+    /**
+     * Take back the last move made by {@link Game#makeMove(Move)}, restoring the exact state before the move.
+     * Moves should be taken back in the reverse order they were made.
+     *
+     * @param token the token returned when the move was made
+     */
+    public void unmakeMove(@NotNull UndoToken token) {
+        var source = token.move.getSource();
+        var destination = token.move.getDestination();
+        this.currentPlayer = token.previousCurrentPlayer;
+        this.numMoves = token.previousNumMoves;
+        token.mover.setScore(token.previousScore);
+        this.setPiece(source.x(), source.y(), token.movedPiece);
+        this.setPiece(destination.x(), destination.y(), token.capturedPiece);
+    }
+
+    /**
+     * Get the bitboard view of the gameboard.
+     *
+     * @return the bitboard, which should not be modified
+     */
+    public BitBoard getBitBoard() {
+        this.ensureBoardState();
+        return this.bitBoard;
+    }
+
+    /**
+     * Get the index from each player to the places of the pieces of the player.
+     *
+     * @return the piece index, which should not be modified
+     */
+    public PieceIndex getPieceIndex() {
+        this.ensureBoardState();
+        return this.pieceIndex;
+    }
+
+    /**
+     * Get the Zobrist hash of the current position, covering the pieces on the gameboard, the player to move and the
+     * protection window. Equal positions have equal hashes; see {@link Zobrist}.
+     *
+     * @return the 64-bit hash of the position
+     */
+    public long getPositionHash() {
+        this.ensureBoardState();
+        return this.piecesHash ^ Zobrist.stateKey(this);
+    }
+
+    /**
+     * Get the static evaluation of the current position, which is kept up to date as pieces move.
+     *
+     * @return the evaluator, which should not be modified
+     */
+    public Evaluator getEvaluator() {
+        this.ensureBoardState();
+        return this.evaluator;
+    }
+
+    /**
+     * Get the squares attacked by each player. The map is built when first used, and then kept up to date as pieces
+     * move.
+     *
+     * @return the attack map, which should not be modified
+     */
+    public AttackMap getAttackMap() {
+        this.ensureBoardState();
+        var currentAttackMap = this.attackMap;
+        if (currentAttackMap == null) {
+            synchronized (this) {
+                if (this.attackMap == null) {
+                    this.attackMap = new AttackMap(this.bitBoard);
+                }
+                currentAttackMap = this.attackMap;
+            }
+        }
+        return currentAttackMap;
+    }
+
+    /**
+     * Get the transposition table caching the search results of computer players in this game.
+     *
+     * It is created when first used, so that games never searched do not allocate it.
+     *
+     * @return the transposition table, which is kept for the lifetime of the game
+     */
+    public synchronized TranspositionTable getTranspositionTable() {
+        if (this.transpositionTable == null) {
+            this.transpositionTable = new TranspositionTable();
+        }
+        return this.transpositionTable;
+    }
+
+    /**
+     * Forget the search results of previous games, without creating the transposition table if it is not used yet.
+     */
+    protected synchronized void clearTranspositionTable() {
+        if (this.transpositionTable != null) {
+            this.transpositionTable.clear();
+        }
+    }
+
+    /**
+     * Get the number of knight moves from each square to the central place, where the pieces on the gameboard block
+     * knights (see {@link KnightMoveTable#computeCenterDistances(BitBoard)}). The distances are computed once for the
+     * pieces on the gameboard, and computed again only after a piece moves.
+     *
+     * @return distances indexed by square, which should not be modified
+     */
+    public int[] getKnightCenterDistances() {
+        this.ensureBoardState();
+        var cached = this.knightCenterDistances;
+        if (cached == null || cached.piecesHash != this.piecesHash) {
+            // racing threads may compute the same distances twice, which is harmless since they are immutable
+            cached = new KnightCenterDistances(this.piecesHash,
+                    KnightMoveTable.forSize(this.configuration.getSize()).computeCenterDistances(this.bitBoard));
+            this.knightCenterDistances = cached;
+        }
+        return cached.distances;
+    }
+
+    /**
+     * Get the number of knights of a player in the critical region.
+     *
+     * @param player the player
+     * @return number of knights of the player in the critical region
+     */
+    public int getCriticalRegionKnightCount(Player player) {
+        this.ensureBoardState();
+        return this.criticalRegionKnights[this.getPlayerIndex(player)];
+    }
+
+    /**
+     * Get the index of a player in {@link Configuration#getPlayers()}, which is used to index the bitboard.
+     *
+     * @param player the player
+     * @return 0 for the first player, 1 otherwise
+     */
+    public int getPlayerIndex(Player player) {
+        return this.configuration.getPlayers()[0].equals(player) ? 0 : 1;
+    }
+
+    /**
+     * Build the derived board state (e.g. {@link Game#bitBoard} and {@link Game#pieceIndex}) if {@link Game#board}
+     * has been replaced since it was built last time.
+     */
+    protected final void ensureBoardState() {
+        if (this.indexedBoard != this.board) {
+            synchronized (this) {
+                if (this.indexedBoard != this.board) {
+                    this.rebuildBoardState();
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild the derived board state from scratch by scanning {@link Game#board}.
+     * Subclasses replacing {@link Game#board} cell by cell without {@link Game#setPiece(int, int, Piece)}
+     * should call this method afterwards.
+     */
+    protected void rebuildBoardState() {
+        var currentBoard = this.board;
+        var newBitBoard = new BitBoard(this.configuration);
+        var newPieceIndex = new PieceIndex(this.configuration.getSize());
+        var newPiecesHash = 0L;
+        var newEvaluator = new Evaluator(this.configuration);
+        for (int x = 0; x < currentBoard.length; x++) {
+            for (int y = 0; y < currentBoard[x].length; y++) {
+                var piece = currentBoard[x][y];
+                if (piece != null) {
+                    var player = this.getPlayerIndex(piece.getPlayer());
+                    newBitBoard.set(player, BitBoard.typeOf(piece), newBitBoard.index(x, y));
+                    newPieceIndex.add(player, newBitBoard.index(x, y));
+                    newPiecesHash ^= Zobrist.pieceKey(player, BitBoard.typeOf(piece), newBitBoard.index(x, y));
+                    newEvaluator.add(player, BitBoard.typeOf(piece), newBitBoard.index(x, y));
+                }
+            }
+        }
+        var newCriticalRegionKnights = new int[BitBoard.NUM_PLAYERS];
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            newCriticalRegionKnights[player] = newBitBoard.countKnightsInCriticalRegion(player);
+        }
+        this.bitBoard = newBitBoard;
+        this.pieceIndex = newPieceIndex;
+        this.criticalRegionKnights = newCriticalRegionKnights;
+        this.piecesHash = newPiecesHash;
+        this.evaluator = newEvaluator;
+        // built again from the new bitboard when used
+        this.attackMap = null;
+        this.indexedBoard = currentBoard;
     }
 
     public Player getCurrentPlayer() {
@@ -285,6 +631,40 @@ public abstract class Game implements Cloneable {
         return board;
     }
 
+    /**
+     * Copy the current position for exploring it in another thread by {@link Game#makeMove(Move)} and
+     * {@link Game#unmakeMove(UndoToken)}, e.g. in {@link AlphaBetaSearch}.
+     * <p>
+     * This is much lighter than {@link Game#clone()}: the board arrays and the players (for their scores) are copied,
+     * while pieces, the rules and the {@link TranspositionTable} are shared. Other state of subclasses (e.g. move
+     * history) is shared as well, so the copy should only be used through the methods above.
+     *
+     * @return the copy
+     */
+    public Game copyPosition() {
+        this.ensureBoardState();
+        try {
+            var copied = (Game) super.clone();
+            copied.configuration = this.configuration.copyWithClonedPlayers();
+            copied.board = new Piece[this.board.length][];
+            for (int x = 0; x < this.board.length; x++) {
+                copied.board[x] = this.board[x].clone();
+            }
+            copied.currentPlayer = this.currentPlayer == null ? null
+                    : copied.configuration.getPlayers()[this.getPlayerIndex(this.currentPlayer)];
+            copied.bitBoard = this.bitBoard.clone();
+            copied.pieceIndex = this.pieceIndex.clone();
+            copied.criticalRegionKnights = this.criticalRegionKnights.clone();
+            copied.evaluator = this.evaluator.clone();
+            // built again when the copy uses it, so that searches on copies do not pay for updating it
+            copied.attackMap = null;
+            copied.indexedBoard = copied.board;
+            return copied;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public Game clone() throws CloneNotSupportedException {
         var cloned = (Game) super.clone();
@@ -306,6 +686,15 @@ public abstract class Game implements Cloneable {
             }
         }
         cloned.currentPlayer = currentPlayer == null ? null : playerCloneMap.get(currentPlayer);
+        // derived board state of the cloned game is rebuilt from the cloned board when needed
+        cloned.bitBoard = null;
+        cloned.pieceIndex = null;
+        cloned.criticalRegionKnights = null;
+        cloned.evaluator = null;
+        cloned.attackMap = null;
+        cloned.transpositionTable = null;
+        cloned.knightCenterDistances = null;
+        cloned.indexedBoard = null;
         return cloned;
     }
 }
\ No newline at end of file
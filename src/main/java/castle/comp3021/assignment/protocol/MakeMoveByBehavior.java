@@ -2,6 +2,7 @@ package castle.comp3021.assignment.protocol;
 
 import castle.comp3021.assignment.piece.Knight;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Random;
@@ -22,9 +23,14 @@ public class MakeMoveByBehavior {
      * Return next move according to different strategies made by each piece.
      * You can add helper method if needed, as long as this method returns a next move.
      * - {@link Behavior#RANDOM}: return a random move from {@link this#availableMoves}
-     * - {@link Behavior#GREEDY}: prefer the moves towards central place, the closer, the better
+     * - {@link Behavior#GREEDY}: prefer the moves towards central place, the closer, the better. The distance of a
+     *                           {@link Knight} is the number of knight moves, with blocking pieces taken into account
+     *                           (see {@link Game#getKnightCenterDistances()}), and the Manhattan distance otherwise
      * - {@link Behavior#CAPTURING}: prefer the moves that captures the enemies, killing the more, the better.
      *                               when there are many pieces that can captures, randomly select one of them
+     * - {@link Behavior#SAFE_CAPTURING}: prefer the captures after which the moved piece cannot be captured, then the
+     *                                    other moves after which the moved piece cannot be captured (see
+     *                                    {@link AttackMap}); randomly select one of them
      * - {@link Behavior#BLOCKING}: prefer the moves that block enemy's {@link Knight}.
      *                              See how to block a knight here: https://en.wikipedia.org/wiki/Xiangqi (see `Horse`)
      *
@@ -44,9 +50,10 @@ public class MakeMoveByBehavior {
                             if (move == null){
                                 return false;
                             }
-                            return getCenterDistance(move.getDestination()) < getCenterDistance(move.getSource());
+                            return getCenterDistance(move, move.getDestination())
+                                    < getCenterDistance(move, move.getSource());
                         })
-                        .min(Comparator.comparing(move -> getCenterDistance(move.getDestination())))
+                        .min(Comparator.comparing(move -> getCenterDistance(move, move.getDestination())))
                         .orElse(availableMoves[new Random().nextInt(availableMoves.length)]);
             }
             case CAPTURING -> {
@@ -98,6 +105,7 @@ public class MakeMoveByBehavior {
                     nextMove = availableMoves[new Random().nextInt(availableMoves.length)];
                 }
             }
+            case SAFE_CAPTURING -> nextMove = chooseSafeMove();
             default -> {
                 nextMove = availableMoves[new Random().nextInt(availableMoves.length)];
             }
@@ -105,10 +113,45 @@ public class MakeMoveByBehavior {
         return nextMove;
     }
 
-    private int getCenterDistance(Place place){
+    private Move chooseSafeMove(){
+        var position = game.copyPosition();
+        var bitBoard = position.getBitBoard();
+        // built once, and then updated as the moves are tried
+        var attackMap = position.getAttackMap();
+        var safeCaptures = new ArrayList<Move>();
+        var safeMoves = new ArrayList<Move>();
+        for (var move : availableMoves){
+            if (move == null || position.getPiece(move.getSource()) == null){
+                continue;
+            }
+            var player = position.getPlayerIndex(position.getPiece(move.getSource()).getPlayer());
+            var isCapture = position.getPiece(move.getDestination()) != null;
+            var token = position.makeMove(move);
+            var destination = bitBoard.index(move.getDestination().x(), move.getDestination().y());
+            var isSafe = !attackMap.isAttacked(1 - player, destination);
+            position.unmakeMove(token);
+            if (isSafe){
+                (isCapture ? safeCaptures : safeMoves).add(move);
+            }
+        }
+        var random = new Random();
+        if (!safeCaptures.isEmpty()){
+            return safeCaptures.get(random.nextInt(safeCaptures.size()));
+        }
+        if (!safeMoves.isEmpty()){
+            return safeMoves.get(random.nextInt(safeMoves.size()));
+        }
+        return availableMoves[random.nextInt(availableMoves.length)];
+    }
+
+    private int getCenterDistance(Move move, Place place){
         if (place == null){
             return 99999999;
         }
+        if (game.getPiece(move.getSource()) instanceof Knight){
+            var size = game.getConfiguration().getSize();
+            return game.getKnightCenterDistances()[place.x() * size + place.y()];
+        }
         Place center = game.getCentralPlace();
         int xDist = Math.abs(place.x() - center.x());
         int yDist = Math.abs(place.y() - center.y());
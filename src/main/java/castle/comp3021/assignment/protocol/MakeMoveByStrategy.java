@@ -1,19 +1,48 @@
 package castle.comp3021.assignment.protocol;
 
-import castle.comp3021.assignment.piece.Knight;
-
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 public class MakeMoveByStrategy {
     private final Strategy strategy;
     private final Game game;
     private final Move[] availableMoves;
+    private final long timeBudgetMillis;
+    private final int searchThreads;
+    private final int mctsIterations;
+    private Random random = new Random();
 
-    public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy){
+    public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy, long timeBudgetMillis,
+                              int searchThreads, int mctsIterations){
         this.game = game;
         this.availableMoves = availableMoves;
         this.strategy = strategy;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.searchThreads = searchThreads;
+        this.mctsIterations = mctsIterations;
+    }
+
+    public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy, long timeBudgetMillis,
+                              int searchThreads){
+        this(game, availableMoves, strategy, timeBudgetMillis, searchThreads, 0);
+    }
+
+    public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy, long timeBudgetMillis){
+        this(game, availableMoves, strategy, timeBudgetMillis, 1);
+    }
+
+    public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy){
+        this(game, availableMoves, strategy, AlphaBetaSearch.DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * Replace the source of random choices, e.g. by a seeded {@link Random} to make the choices repeatable.
+     *
+     * @param random the source of random choices
+     */
+    public void setRandom(Random random){
+        this.random = random;
     }
 
     /**
@@ -21,6 +50,9 @@ public class MakeMoveByStrategy {
      * You can add helper method if needed, as long as this method returns a next move.
      * - {@link Strategy#RANDOM}: select a random move from the proposed moves by all pieces
      * - {@link Strategy#SMART}: come up with some strategy to select a next move from the proposed moves by all pieces
+     * - {@link Strategy#SEARCH}: search the proposed moves with {@link AlphaBetaSearch} within the time budget
+     * - {@link Strategy#MCTS}: sample games from the proposed moves with {@link MonteCarloTreeSearch} on all
+     *                          available processors, within the time budget and the number of iterations if limited
      *
      * @return a next move
      */
@@ -31,265 +63,102 @@ public class MakeMoveByStrategy {
         }
 
         if (strategy == Strategy.RANDOM){
-            return availableMoves[new Random().nextInt(availableMoves.length)];
-        }
-
-        return chooseSmartMove();
-    }
-
-    private Move chooseSmartMove(){
-        //if there is a move that will win
-        Move winningMove = getWinningMove();
-        if (winningMove != null){
-            return winningMove;
-        }
-
-        //move Knight to center as much as possible
-        Move mostGreedy = getBestGreedy();
-        if (mostGreedy != null){
-            return mostGreedy;
-        }
-
-        //if a move prevent enemy win
-        Move criticalCapture = getCriticalCapture();
-        if (criticalCapture != null){
-            return criticalCapture;
-        }
-
-        Move bestCapture = getBestCapture();
-        if (bestCapture != null){
-            return bestCapture;
+            return availableMoves[random.nextInt(availableMoves.length)];
         }
 
-        Move bestBlocking = getBestBlocking();
-        if (bestBlocking != null){
-            return bestBlocking;
+        if (strategy == Strategy.SEARCH){
+            // searched on a copy, so that the game and its players are left alone during the search
+            var search = new AlphaBetaSearch(game.copyPosition(), timeBudgetMillis, game.getTranspositionTable());
+            search.setParallelism(searchThreads);
+            return search.search(availableMoves);
         }
 
-        Move minMove = Arrays.stream(availableMoves).min(Comparator.comparing(this::moveDist)).orElse(null);
-        if (minMove != null){
-            return minMove;
+        if (strategy == Strategy.MCTS){
+            var search = new MonteCarloTreeSearch(game, timeBudgetMillis);
+            search.setIterations(mctsIterations);
+            return search.search(availableMoves);
         }
 
-        return availableMoves[new Random().nextInt(availableMoves.length)];
+        return chooseSmartMove();
     }
 
-    private Move getWinningMove(){
-        List<Move> winningMoves
-                = Arrays.stream(availableMoves)
-                .filter(this::winningMoveCheck)
-                .collect(Collectors.toList());
-        if (!winningMoves.isEmpty()){
-            return winningMoves.get(new Random().nextInt(winningMoves.size()));
-        }else{
-            return null;
-        }
-    }
+    private Move chooseSmartMove(){
+        var features = SmartMoveFeatures.extract(game, availableMoves);
 
-    private boolean winningMoveCheck(Move move){
-        if (move == null){
-            return false;
-        }
-        if (game.getNumMoves() < game.getConfiguration().getNumMovesProtection()){
-            return false;
-        }
-        if (game.getPiece(move.getSource()) instanceof Knight){
-            if (move.getSource().equals(game.getCentralPlace())
-                    && !move.getDestination().equals(game.getCentralPlace())){
-                return true;
+        //if there is a move that will win
+        var numWinning = 0;
+        for (int i = 0; i < features.size(); i++){
+            if (features.isWinning(i)){
+                numWinning++;
             }
         }
-
-        Piece destPiece = game.getPiece(move.getDestination());
-        if (destPiece == null){
-            return false;
-        }
-
-        int enemyPieces = 0;
-        int boardSize = game.getConfiguration().getSize();
-        for (int i=0; i<boardSize; i++){
-            for (int j=0; j<boardSize; j++){
-                Piece tempPiece = game.getPiece(i,j);
-                if (tempPiece == null || tempPiece.getPlayer().equals(game.currentPlayer)){
-                    continue;
+        if (numWinning > 0){
+            var chosen = random.nextInt(numWinning);
+            for (int i = 0; i < features.size(); i++){
+                if (features.isWinning(i) && chosen-- == 0){
+                    return features.getMove(i);
                 }
-                enemyPieces += 1;
             }
         }
 
-        if (enemyPieces == 1){
-            if (!destPiece.getPlayer().equals(game.currentPlayer)){
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private Move getBestGreedy() {
-        List<Move> knightGreedyMove = Arrays
-                .stream(availableMoves)
-                .filter(move -> game.getPiece(move.getSource()) instanceof Knight)
-                .filter(this::greedyCheck)
-                .collect(Collectors.toList());
-
-        if (knightGreedyMove.isEmpty()){
-            return null;
-        }
-
-        Move bestGreedy = knightGreedyMove.stream()
-                .filter(this::easyCenterCheck)
-                .min(Comparator.comparing(move -> getCenterDistance(move.getDestination())))
-                .orElse(null);
-
-        if (bestGreedy != null){
-            return bestGreedy;
-        }
-
-        return knightGreedyMove.stream()
-                .min(Comparator.comparing(move -> getCenterDistance(move.getDestination())))
-                .orElse(null);
-    }
-
-    private boolean greedyCheck(Move move){
-        if (move == null){
-            return false;
-        }
-        return getCenterDistance(move.getDestination()) < getCenterDistance(move.getSource());
-    }
-
-    private boolean easyCenterCheck(Move move){
-        if (move == null){
-            return false;
-        }
-        return getCenterDistance(move.getDestination())%3 == 0;
-    }
-
-    private Move getCriticalCapture(){
-        return Arrays.stream(availableMoves)
-                .filter(this::criticalCaptureCheck)
-                .min(Comparator.comparing(this::moveDist))
-                .orElse(null);
-    }
-
-    private boolean criticalCaptureCheck(Move move){
-        if (move == null){
-            return false;
-        }
-        Place dest = move.getDestination();
-        Piece destPiece = game.getPiece(dest);
-        if (destPiece == null || destPiece.getPlayer().equals(game.currentPlayer)){
-            return false;
-        }
-
-        int distCenterX = Math.abs(move.getDestination().x() - game.getCentralPlace().x());
-        int distCenterY = Math.abs(move.getDestination().y() - game.getCentralPlace().y());
-
-        if ((distCenterX==1 && distCenterY==2) || (distCenterX==2 && distCenterY==1)){
-            if (!destPiece.getPlayer().equals(game.currentPlayer)){
-                return true;
-            }
+        //move Knight to center as much as possible, preferring destinations at a multiple of 3 from the center
+        var mostGreedy = findMin(features,
+                i -> features.isKnightMove(i) && features.getCenterDistanceDelta(i) < 0
+                        && features.getDestinationCenterDistance(i) % 3 == 0,
+                features::getDestinationCenterDistance);
+        if (mostGreedy < 0){
+            mostGreedy = findMin(features,
+                    i -> features.isKnightMove(i) && features.getCenterDistanceDelta(i) < 0,
+                    features::getDestinationCenterDistance);
         }
-
-        return false;
-    }
-
-    private Move getBestCapture(){
-        List<Move> captures = Arrays
-                .stream(availableMoves)
-                .filter(this::capturingCheck)
-                .collect(Collectors.toList());
-        if (captures.isEmpty()){
-            return null;
+        if (mostGreedy >= 0){
+            return features.getMove(mostGreedy);
         }
 
-        Move bestCapture = captures.stream()
-                .filter(this::captureKnightCheck)
-                .min(Comparator.comparing(this::moveDist))
-                .orElse(null);
-
-        if (bestCapture != null){
-            return bestCapture;
+        //if a move prevent enemy win
+        var criticalCapture = findMin(features, features::isCriticalCapture, features::getMoveDistance);
+        if (criticalCapture >= 0){
+            return features.getMove(criticalCapture);
         }
 
-        return captures.stream()
-                .min(Comparator.comparing(this::moveDist))
-                .orElse(null);
-    }
-
-    private boolean capturingCheck(Move move){
-        if (move == null){
-            return false;
+        var bestCapture = findMin(features, features::isKnightCapture, features::getMoveDistance);
+        if (bestCapture < 0){
+            bestCapture = findMin(features, features::isCapture, features::getMoveDistance);
         }
-        Place dest = move.getDestination();
-        Piece destPiece = game.getPiece(dest);
-        if (destPiece == null || destPiece.getPlayer().equals(game.currentPlayer)){
-            return false;
+        if (bestCapture >= 0){
+            return features.getMove(bestCapture);
         }
 
-        return true;
-    }
-
-    private boolean captureKnightCheck(Move move){
-        if (move == null){
-            return false;
-        }
-        Place dest = move.getDestination();
-        Piece destPiece = game.getPiece(dest);
-        if (destPiece == null || destPiece.getPlayer().equals(game.currentPlayer)){
-            return false;
+        var bestBlocking = findMin(features, features::isBlocking, features::getMoveDistance);
+        if (bestBlocking >= 0){
+            return features.getMove(bestBlocking);
         }
 
-        if (destPiece instanceof Knight){
-            return true;
+        var minMove = findMin(features, i -> true, features::getMoveDistance);
+        if (minMove >= 0){
+            return features.getMove(minMove);
         }
-        return false;
-    }
 
-    private Move getBestBlocking(){
-        return Arrays.stream(availableMoves)
-                .filter(this::blockingCheck)
-                .min(Comparator.comparing(this::moveDist))
-                .orElse(null);
+        return availableMoves[random.nextInt(availableMoves.length)];
     }
 
-    private boolean blockingCheck(Move move){
-        if (move == null){
-            return false;
-        }
-        Place dest = move.getDestination();
-        int[] offsetX = {-1, 1, 0, 0};
-        int[] offsetY = {0, 0, -1, 1};
-        for (int i=0; i<offsetX.length; i++){
-            Piece adjPiece = game.getPiece(dest.x()+offsetX[i], dest.y()+offsetY[i]);
-            if (adjPiece !=null){
-                if (adjPiece instanceof Knight &&
-                        !(adjPiece.getPlayer().equals(game.currentPlayer))){
-                    return true;
+    /**
+     * Find the first move with the smallest key among moves matching a filter.
+     *
+     * @return index of the move, or -1 if no move matches the filter
+     */
+    private static int findMin(SmartMoveFeatures features, IntPredicate filter, IntUnaryOperator key){
+        var best = -1;
+        var bestKey = 0;
+        for (int i = 0; i < features.size(); i++){
+            if (filter.test(i)){
+                var k = key.applyAsInt(i);
+                if (best < 0 || k < bestKey){
+                    best = i;
+                    bestKey = k;
                 }
             }
         }
-        return false;
-    }
-
-    private int moveDist(Move move){
-        if (move == null
-                || move.getSource() == null
-                || move.getDestination() ==null){
-            return 99999999;
-        }
-        int xDist = Math.abs(move.getSource().x() - move.getDestination().x());
-        int yDist = Math.abs(move.getSource().y() - move.getDestination().y());
-        return Math.abs(xDist + yDist);
-    }
-
-    private int getCenterDistance(Place place){
-        if (place == null){
-            return 99999999;
-        }
-        Place center = game.getCentralPlace();
-        int xDist = Math.abs(place.x() - center.x());
-        int yDist = Math.abs(place.y() - center.y());
-        return Math.abs(xDist + yDist);
+        return best;
     }
 }
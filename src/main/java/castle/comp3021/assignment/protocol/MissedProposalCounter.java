@@ -0,0 +1,54 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Numbers of candidate moves of computer pieces that were not proposed before the deadline of the turn (see
+ * {@link Configuration#getTurnBudgetMillis()}), counted per piece and per {@link Behavior}.
+ * Pieces that are paused or terminated, or have no move, do not miss the deadline.
+ */
+public class MissedProposalCounter {
+    private final Map<Piece, Integer> countsByPiece = new IdentityHashMap<>();
+
+    private final Map<Behavior, Integer> countsByBehavior = new EnumMap<>(Behavior.class);
+
+    private int total;
+
+    /**
+     * Record that a piece missed the deadline of a turn.
+     *
+     * @param piece the piece
+     */
+    public synchronized void record(@NotNull Piece piece) {
+        countsByPiece.merge(piece, 1, Integer::sum);
+        countsByBehavior.merge(piece.getBehavior(), 1, Integer::sum);
+        total++;
+    }
+
+    /**
+     * @param piece the piece
+     * @return number of turns in which the piece missed the deadline
+     */
+    public synchronized int getCount(@NotNull Piece piece) {
+        return countsByPiece.getOrDefault(piece, 0);
+    }
+
+    /**
+     * @param behavior the behavior
+     * @return number of times pieces of the behavior missed the deadline
+     */
+    public synchronized int getCount(@NotNull Behavior behavior) {
+        return countsByBehavior.getOrDefault(behavior, 0);
+    }
+
+    /**
+     * @return number of times any piece missed the deadline
+     */
+    public synchronized int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,358 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Knight;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Monte Carlo tree search with UCT (upper confidence bounds applied to trees), used by {@link Strategy#MCTS}.
+ * <p>
+ * Each iteration walks down the tree by the UCT formula, expands one untried move, plays the game to the end by a
+ * rollout policy, and adds the result to every node on the way back. A move that wins the game at once is always
+ * chosen, both at the root and in the tree, so that the result of a won position is not diluted by other moves.
+ * Moves of rollouts are picked by {@link MakeMoveByBehavior} with the rollout behavior (e.g.
+ * {@link Behavior#CAPTURING} or {@link Behavior#GREEDY}), and the game ends the same way as {@link AlphaBetaSearch}.
+ * A rollout that has not ended after {@link MonteCarloTreeSearch#MAX_ROLLOUT_PLIES} plies is won by the player ahead
+ * by {@link Game#getEvaluator()}, or drawn if both players are even.
+ * <p>
+ * The search is root-parallel: each worker grows its own tree on its own {@link Game#copyPosition()}, and the visits of
+ * the root moves are summed over all workers to choose the most visited move. Workers play moves in place by
+ * {@link Game#makeMove(Move)} and take them back after every iteration, so no game is cloned during the search.
+ * <p>
+ * The search stops when the time budget runs out, or when the number of iterations is reached if it is limited.
+ */
+public class MonteCarloTreeSearch {
+    /**
+     * Largest number of plies played by a rollout
+     */
+    public static final int MAX_ROLLOUT_PLIES = 100;
+
+    /**
+     * Winner of a rollout cut off with an even evaluation
+     */
+    private static final int DRAW = -1;
+
+    /**
+     * Exploration constant of UCT, sqrt(2) for results between 0 and 1
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * Number of iterations between two checks of the clock.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 16;
+
+    private final Game game;
+
+    private final long timeBudgetNanos;
+
+    private int iterations;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private Behavior rolloutBehavior = Behavior.CAPTURING;
+
+    private long seed = System.nanoTime();
+
+    private long completedIterations;
+
+    /**
+     * A node of the tree, which is reached by a move from its parent.
+     */
+    private static class Node {
+        private final Move move;
+
+        private final Node parent;
+
+        private final ArrayList<Node> children = new ArrayList<>();
+
+        /**
+         * A child whose move wins the game, which is always selected once found
+         */
+        private Node winningChild;
+
+        /**
+         * Moves from this node not expanded yet, or null if the moves are not generated yet
+         */
+        private Move[] untriedMoves;
+
+        private int numUntriedMoves;
+
+        /**
+         * Whether the player who made the move has won by it
+         */
+        private boolean terminal;
+
+        private int visits;
+
+        /**
+         * Sum of results from the view of the player who made the move
+         */
+        private double wins;
+
+        private Node(Move move, Node parent) {
+            this.move = move;
+            this.parent = parent;
+        }
+
+        private Node selectChild() {
+            if (this.winningChild != null) {
+                return this.winningChild;
+            }
+            Node best = null;
+            var bestValue = Double.NEGATIVE_INFINITY;
+            var logVisits = Math.log(this.visits);
+            for (var child : this.children) {
+                var value = child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    public MonteCarloTreeSearch(Game game, long timeBudgetMillis) {
+        this.game = game;
+        this.timeBudgetNanos = Math.max(1, timeBudgetMillis) * 1_000_000;
+    }
+
+    /**
+     * Limit the number of iterations, so that the search may stop before the time budget runs out.
+     *
+     * @param iterations the total number of iterations of all workers, or 0 for no limit
+     */
+    public void setIterations(int iterations) {
+        this.iterations = Math.max(0, iterations);
+    }
+
+    /**
+     * Set the number of workers searching in parallel, which is the number of available processors by default.
+     *
+     * @param parallelism number of threads, 1 for searching in the calling thread only
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param rolloutBehavior the behavior picking moves of rollouts
+     */
+    public void setRolloutBehavior(Behavior rolloutBehavior) {
+        this.rolloutBehavior = rolloutBehavior;
+    }
+
+    /**
+     * @param seed seed of the random choices of the tree, so that searches limited by iterations can be repeated
+     *             (moves of rollouts are still picked by {@link MakeMoveByBehavior} at random)
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return number of iterations completed by all workers of the last search
+     */
+    public long getCompletedIterations() {
+        return completedIterations;
+    }
+
+    /**
+     * Search the best move of the player to move.
+     *
+     * @param rootMoves the moves to choose from, which should be available moves of the player to move
+     * @return the most visited move, or null if there is no move to choose from
+     */
+    public Move search(Move[] rootMoves) {
+        if (rootMoves.length == 0) {
+            return null;
+        }
+        completedIterations = 0;
+        for (var move : rootMoves) {
+            if (isWinningMove(game, move)) {
+                return move;
+            }
+        }
+        var deadline = System.nanoTime() + timeBudgetNanos;
+        var numWorkers = parallelism;
+        var visits = new long[rootMoves.length];
+        if (numWorkers == 1) {
+            completedIterations = runWorker(game.copyPosition(), rootMoves, iterations, deadline, seed, visits);
+        } else {
+            var tasks = new ArrayList<Callable<long[]>>();
+            for (int i = 0; i < numWorkers; i++) {
+                // split the iterations so that the total is exact
+                var workerIterations = iterations == 0 ? 0
+                        : iterations / numWorkers + (i < iterations % numWorkers ? 1 : 0);
+                if (iterations != 0 && workerIterations == 0) {
+                    continue;
+                }
+                var workerSeed = seed + i;
+                // copied here rather than by the worker, since copying may build the board state of the game
+                var position = game.copyPosition();
+                tasks.add(() -> {
+                    var workerVisits = new long[rootMoves.length + 1];
+                    workerVisits[rootMoves.length] = runWorker(position, rootMoves, workerIterations, deadline,
+                            workerSeed, workerVisits);
+                    return workerVisits;
+                });
+            }
+            var pool = new ForkJoinPool(numWorkers);
+            try {
+                for (var future : pool.invokeAll(tasks)) {
+                    var workerVisits = future.get();
+                    for (int i = 0; i < rootMoves.length; i++) {
+                        visits[i] += workerVisits[i];
+                    }
+                    completedIterations += workerVisits[rootMoves.length];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        var best = 0;
+        for (int i = 1; i < rootMoves.length; i++) {
+            if (visits[i] > visits[best]) {
+                best = i;
+            }
+        }
+        return rootMoves[best];
+    }
+
+    /**
+     * Grow a tree on a copy of the game.
+     *
+     * @param position   the copy of the game, which is owned by the worker
+     * @param rootMoves  the moves of the root
+     * @param iterations the number of iterations, or 0 to run until the deadline
+     * @param visits     the visits of root moves are added to the first rootMoves.length elements
+     * @return the number of iterations completed
+     */
+    private long runWorker(Game position, Move[] rootMoves, int iterations, long deadline, long seed, long[] visits) {
+        var random = new Random(seed);
+        var root = new Node(null, null);
+        root.untriedMoves = rootMoves.clone();
+        root.numUntriedMoves = rootMoves.length;
+        var tokens = new ArrayList<UndoToken>();
+        long completed = 0;
+        while (iterations == 0 || completed < iterations) {
+            if (completed % CLOCK_CHECK_INTERVAL == 0
+                    && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+                break;
+            }
+            var node = root;
+            // selection
+            while (!node.terminal
+                    && (node.winningChild != null || node.numUntriedMoves == 0 && !node.children.isEmpty())) {
+                node = node.selectChild();
+                tokens.add(position.makeMove(node.move));
+            }
+            // expansion
+            if (!node.terminal) {
+                if (node.untriedMoves == null) {
+                    node.untriedMoves = Perft.generateMoves(position, Perft.PIECE_MOVES);
+                    node.numUntriedMoves = node.untriedMoves.length;
+                }
+                if (node.numUntriedMoves > 0) {
+                    var index = random.nextInt(node.numUntriedMoves);
+                    var move = node.untriedMoves[index];
+                    node.untriedMoves[index] = node.untriedMoves[--node.numUntriedMoves];
+                    var child = new Node(move, node);
+                    child.terminal = isWinningMove(position, move);
+                    if (child.terminal) {
+                        node.winningChild = child;
+                    }
+                    node.children.add(child);
+                    tokens.add(position.makeMove(move));
+                    node = child;
+                }
+            }
+            // simulation, from the view of the player who made the move of the node
+            double result;
+            if (node.terminal) {
+                result = 1;
+            } else if (node.move == null) {
+                // the root has no available moves
+                result = 0.5;
+            } else {
+                var mover = 1 - position.getCurrentPlayerID();
+                var winner = rollout(position, tokens);
+                result = winner == DRAW ? 0.5 : winner == mover ? 1 : 0;
+            }
+            // backpropagation
+            for (; node != null; node = node.parent) {
+                node.visits++;
+                node.wins += result;
+                result = 1 - result;
+            }
+            for (int i = tokens.size() - 1; i >= 0; i--) {
+                position.unmakeMove(tokens.get(i));
+            }
+            tokens.clear();
+            completed++;
+        }
+        for (var child : root.children) {
+            for (int i = 0; i < rootMoves.length; i++) {
+                if (rootMoves[i] == child.move) {
+                    visits[i] += child.visits;
+                    break;
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Play the game by the rollout behavior until it ends.
+     * The moves are added to the tokens, so that they are taken back with the moves of the tree.
+     *
+     * @return index of the winner, or {@link MonteCarloTreeSearch#DRAW}
+     */
+    private int rollout(Game position, ArrayList<UndoToken> tokens) {
+        for (int ply = 0; ply < MAX_ROLLOUT_PLIES; ply++) {
+            var player = position.getCurrentPlayerID();
+            var moves = Perft.generateMoves(position, Perft.PIECE_MOVES);
+            if (moves.length == 0) {
+                // the player with the lower score wins, and the player to move wins a tie
+                var players = position.getConfiguration().getPlayers();
+                return players[player].getScore() <= players[1 - player].getScore() ? player : 1 - player;
+            }
+            var move = new MakeMoveByBehavior(position, moves, rolloutBehavior).getNextMove();
+            var won = isWinningMove(position, move);
+            tokens.add(position.makeMove(move));
+            if (won) {
+                return player;
+            }
+        }
+        var difference = position.getEvaluator().evaluate(0);
+        if (difference == 0) {
+            return DRAW;
+        }
+        return difference > 0 ? 0 : 1;
+    }
+
+    /**
+     * @return whether the player to move wins the game by the move
+     */
+    private static boolean isWinningMove(Game position, Move move) {
+        if (position.getNumMoves() < position.getConfiguration().getNumMovesProtection()) {
+            return false;
+        }
+        var source = move.getSource();
+        var destination = move.getDestination();
+        if (position.getPiece(source) instanceof Knight && position.isCentralPlace(source.x(), source.y())) {
+            return true;
+        }
+        var captured = position.getPiece(destination);
+        return captured != null && position.getPieceIndex().getCount(1 - position.getCurrentPlayerID()) == 1;
+    }
+}
@@ -4,11 +4,19 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
 import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Move class represent a move made by a {@link Player}, moving a piece from one {@link Place} to another {@link Place}.
  */
 public class Move implements Cloneable {
+    /**
+     * Interned moves, indexed by the interned index of source place and then destination place.
+     * Rows are allocated lazily, since only moves made by pieces are ever looked up.
+     */
+    private static final AtomicReferenceArray<AtomicReferenceArray<Move>> CACHE =
+            new AtomicReferenceArray<>(Place.CACHE_SIZE * Place.CACHE_SIZE);
+
     /**
      * Source place of the move.
      */
@@ -25,11 +33,47 @@ public class Move implements Cloneable {
     }
 
     public Move(int sourceX, int sourceY, int destinationX, int destinationY) {
-        this(new Place(sourceX, sourceY), new Place(destinationX, destinationY));
+        this(Place.of(sourceX, sourceY), Place.of(destinationX, destinationY));
     }
 
     public Move(Place source, int destinationX, int destinationY) {
-        this(source, new Place(destinationX, destinationY));
+        this(source, Place.of(destinationX, destinationY));
+    }
+
+    /**
+     * Get the canonical move between two places.
+     * Moves on the gameboard are interned, so looking them up again does not allocate.
+     *
+     * @param source      source place
+     * @param destination destination place
+     * @return the canonical move, or a new move if any place is outside any gameboard
+     */
+    public static Move of(@NotNull Place source, @NotNull Place destination) {
+        var from = Place.cacheIndex(source.x(), source.y());
+        var to = Place.cacheIndex(destination.x(), destination.y());
+        if (from < 0 || to < 0) {
+            return new Move(source, destination);
+        }
+        var row = CACHE.get(from);
+        if (row == null) {
+            CACHE.compareAndSet(from, null, new AtomicReferenceArray<>(Place.CACHE_SIZE * Place.CACHE_SIZE));
+            row = CACHE.get(from);
+        }
+        var move = row.get(to);
+        if (move == null) {
+            row.compareAndSet(to, null, new Move(Place.of(source.x(), source.y()),
+                    Place.of(destination.x(), destination.y())));
+            move = row.get(to);
+        }
+        return move;
+    }
+
+    public static Move of(int sourceX, int sourceY, int destinationX, int destinationY) {
+        return of(Place.of(sourceX, sourceY), Place.of(destinationX, destinationY));
+    }
+
+    public static Move of(@NotNull Place source, int destinationX, int destinationY) {
+        return of(source, Place.of(destinationX, destinationY));
     }
 
     /* Getters start */
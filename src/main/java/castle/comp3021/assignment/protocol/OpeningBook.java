@@ -0,0 +1,194 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Book of precomputed moves of opening positions, keyed by {@link OpeningBook#keyOf(Game)}.
+ * <p>
+ * The book is a binary file of big-endian values: the magic number {@link OpeningBook#MAGIC}, the version, the number
+ * of entries, and then the entries sorted by key. Each entry is the 64-bit key followed by the source and the
+ * destination squares of the move as 16-bit numbers (x * size + y), i.e. {@link OpeningBook#ENTRY_BYTES} bytes.
+ * The file is memory-mapped and searched by binary search, so a lookup does not read the whole book.
+ * <p>
+ * The default book is the resource {@link OpeningBook#DEFAULT_RESOURCE} next to this class, built by
+ * {@link OpeningBookBuilder}, and loaded once when first used. A missing or malformed default book is treated as empty,
+ * with a warning on the standard error, since computer players then search every opening move.
+ */
+public class OpeningBook {
+    /**
+     * "JMOB" in ASCII
+     */
+    public static final int MAGIC = 0x4A4D4F42;
+
+    public static final int VERSION = 1;
+
+    public static final int HEADER_BYTES = 12;
+
+    public static final int ENTRY_BYTES = 12;
+
+    public static final String DEFAULT_RESOURCE = "opening-book.bin";
+
+    /**
+     * The book without any entry.
+     */
+    public static final OpeningBook EMPTY = new OpeningBook(ByteBuffer.allocate(0), 0);
+
+    private final ByteBuffer entries;
+
+    private final int numEntries;
+
+    private OpeningBook(ByteBuffer entries, int numEntries) {
+        this.entries = entries;
+        this.numEntries = numEntries;
+    }
+
+    /**
+     * Lazily loaded default book, see the initialization-on-demand holder idiom.
+     */
+    private static class DefaultBookHolder {
+        private static final OpeningBook DEFAULT_BOOK = loadDefault();
+
+        private static OpeningBook loadDefault() {
+            var url = OpeningBook.class.getResource(DEFAULT_RESOURCE);
+            if (url == null) {
+                System.err.println("Opening book " + DEFAULT_RESOURCE + " is not on the class path, "
+                        + "so the default book is empty");
+                return EMPTY;
+            }
+            try {
+                if ("file".equals(url.getProtocol())) {
+                    return load(Path.of(url.toURI()));
+                }
+                // e.g. inside a jar, where the book cannot be mapped
+                try (InputStream in = url.openStream()) {
+                    var bytes = in.readAllBytes();
+                    var buffer = ByteBuffer.allocateDirect(bytes.length);
+                    buffer.put(bytes).flip();
+                    return of(buffer);
+                }
+            } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+                System.err.println("Opening book " + url + " cannot be loaded, so the default book is empty: " + e);
+                return EMPTY;
+            }
+        }
+    }
+
+    /**
+     * @return the default book, which is empty if it is not available
+     */
+    public static OpeningBook getDefault() {
+        return DefaultBookHolder.DEFAULT_BOOK;
+    }
+
+    /**
+     * Memory-map a book file.
+     *
+     * @param path the path of the book
+     * @return the book
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a book
+     */
+    public static OpeningBook load(@NotNull Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static OpeningBook of(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("unsupported version of opening book " + buffer.getInt(4));
+        }
+        var numEntries = buffer.getInt(8);
+        if (numEntries < 0 || (long) numEntries * ENTRY_BYTES != buffer.remaining() - HEADER_BYTES) {
+            throw new IllegalArgumentException("opening book is truncated");
+        }
+        return new OpeningBook(buffer.slice(HEADER_BYTES, numEntries * ENTRY_BYTES), numEntries);
+    }
+
+    /**
+     * Serialize entries into the format of the book file.
+     *
+     * @param book moves of positions, keyed by {@link OpeningBook#keyOf(Game)}, with squares as x * size + y
+     * @return the content of the book file
+     */
+    public static ByteBuffer write(@NotNull Map<Long, int[]> book) {
+        var keys = book.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        var buffer = ByteBuffer.allocate(HEADER_BYTES + keys.length * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(keys.length);
+        for (var key : keys) {
+            var squares = book.get(key);
+            buffer.putLong(key).putShort((short) squares[0]).putShort((short) squares[1]);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Compute the key of a position in the book, which is {@link Game#getPositionHash()} combined with the size and the
+     * critical region of the configuration, since the best move also depends on the rules.
+     *
+     * @param game the game
+     * @return the key
+     */
+    public static long keyOf(@NotNull Game game) {
+        var configuration = game.getConfiguration();
+        var rules = ((long) configuration.getSize() << 32)
+                | ((long) configuration.getCriticalRegionSize() << 16)
+                | configuration.getCriticalRegionCapacity();
+        // SplitMix64 finalizer, as in Zobrist
+        var z = rules * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return game.getPositionHash() ^ z ^ (z >>> 31);
+    }
+
+    /**
+     * Look up the move of the current position.
+     *
+     * @param game the game
+     * @return the move in the book, or null if the position is not in the book
+     */
+    public @Nullable Move lookup(@NotNull Game game) {
+        if (numEntries == 0) {
+            return null;
+        }
+        var key = keyOf(game);
+        var low = 0;
+        var high = numEntries - 1;
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var midKey = entries.getLong(mid * ENTRY_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                var size = game.getConfiguration().getSize();
+                var from = entries.getShort(mid * ENTRY_BYTES + 8);
+                var to = entries.getShort(mid * ENTRY_BYTES + 10);
+                return Move.of(from / size, from % size, to / size, to % size);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of positions in the book
+     */
+    public int size() {
+        return numEntries;
+    }
+}
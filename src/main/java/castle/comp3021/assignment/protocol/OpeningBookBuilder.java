@@ -0,0 +1,119 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.player.ConsolePlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offline builder of the {@link OpeningBook} of the standard starting setup (see
+ * {@link Configuration#setAllInitialPieces()}), which is the same setup as
+ * {@link castle.comp3021.assignment.textversion.Main#createGame(int, int, int, int)}.
+ * <p>
+ * For each board size, the best move of every position within the given number of plies from the start is searched by
+ * {@link AlphaBetaSearch} with a time budget per position. With 2 plies, the book covers the first move of the first
+ * player, and the reply of the second player to any first move.
+ * <p>
+ * Usage: {@code java castle.comp3021.assignment.protocol.OpeningBookBuilder <output> [millisPerPosition] [plies]
+ * [minSize] [maxSize] [numMovesProtection] [criticalRegionSize] [criticalRegionCapacity]}
+ * <br>
+ * The defaults build the book of sizes 5 to 25 with the default rules of
+ * {@link castle.comp3021.assignment.textversion.Main}.
+ */
+public class OpeningBookBuilder {
+    private final long millisPerPosition;
+
+    private final Map<Long, int[]> book = new HashMap<>();
+
+    public OpeningBookBuilder(long millisPerPosition) {
+        this.millisPerPosition = millisPerPosition;
+    }
+
+    /**
+     * Add the positions within the given number of plies from the start of a game to the book.
+     *
+     * @param configuration the configuration with the initial pieces, whose players should not be computer players
+     * @param plies         the number of plies from the start, at least 1
+     */
+    public void addGame(Configuration configuration, int plies) {
+        var game = new JesonMor(configuration);
+        game.currentPlayer = configuration.getPlayers()[0];
+        addPositions(game, plies);
+    }
+
+    private void addPositions(Game game, int plies) {
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        if (moves.length == 0) {
+            return;
+        }
+        var key = OpeningBook.keyOf(game);
+        if (!book.containsKey(key)) {
+            var move = new AlphaBetaSearch(game, millisPerPosition).search(moves);
+            var size = game.getConfiguration().getSize();
+            book.put(key, new int[]{
+                    move.getSource().x() * size + move.getSource().y(),
+                    move.getDestination().x() * size + move.getDestination().y()});
+        }
+        if (plies > 1) {
+            for (var move : moves) {
+                var token = game.makeMove(move);
+                addPositions(game, plies - 1);
+                game.unmakeMove(token);
+            }
+        }
+    }
+
+    /**
+     * @return number of positions in the book
+     */
+    public int size() {
+        return book.size();
+    }
+
+    /**
+     * Write the book to a file.
+     *
+     * @param path the path of the book
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(OpeningBook.write(book));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: OpeningBookBuilder <output> [millisPerPosition] [plies] [minSize] [maxSize] "
+                    + "[numMovesProtection] [criticalRegionSize] [criticalRegionCapacity]");
+            return;
+        }
+        var millisPerPosition = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        var plies = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        var minSize = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        var maxSize = args.length > 4 ? Integer.parseInt(args[4]) : 25;
+        var numMovesProtection = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        var criticalRegionSize = args.length > 6 ? Integer.parseInt(args[6]) : 1;
+        var criticalRegionCapacity = args.length > 7 ? Integer.parseInt(args[7]) : 1;
+        var builder = new OpeningBookBuilder(millisPerPosition);
+        for (int size = minSize | 1; size <= maxSize; size += 2) {
+            var players = new Player[]{new ConsolePlayer("White", Color.WHITE), new ConsolePlayer("Black", Color.BLACK)};
+            var configuration = new Configuration(size, players, numMovesProtection, criticalRegionSize,
+                    criticalRegionCapacity);
+            configuration.validateConfiguration();
+            configuration.setAllInitialPieces();
+            var start = System.nanoTime();
+            var before = builder.size();
+            builder.addGame(configuration, plies);
+            System.out.printf("size %d: %d positions in %d ms%n", size, builder.size() - before,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        builder.write(Path.of(args[0]));
+    }
+}
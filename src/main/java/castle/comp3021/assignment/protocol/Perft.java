@@ -0,0 +1,144 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.MoveContext;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Perft ("performance test") of move generation: count all sequences of legal moves up to a depth.
+ * <p>
+ * The counts of a fast move generator can be cross-checked against {@link Perft#RULE_FILTERED}, which filters every
+ * square of the gameboard through the rules, to find bugs in move generation.
+ * Like perft in chess, a position only ends the sequence when the player to move has no available moves, so positions
+ * where the game has already been won are still expanded.
+ * <p>
+ * Usage: {@code java castle.comp3021.assignment.protocol.Perft <size> <depth> [numMovesProtection]}
+ */
+public class Perft {
+    /**
+     * Generator of the available moves of the piece at a place.
+     */
+    @FunctionalInterface
+    public interface MoveGenerator {
+        /**
+         * @param game   the current game object
+         * @param source the place of the piece, which is not empty
+         * @return available moves of the piece
+         */
+        Move[] generate(Game game, Place source);
+    }
+
+    /**
+     * The moves generated by the pieces themselves, i.e. {@link Piece#getAvailableMoves(Game, Place)}.
+     */
+    public static final MoveGenerator PIECE_MOVES = (game, source) ->
+            game.getPiece(source).getAvailableMoves(game, source);
+
+    /**
+     * The moves to every square of the gameboard that pass {@link Configuration#getRulePipeline()}.
+     */
+    public static final MoveGenerator RULE_FILTERED = (game, source) -> {
+        var size = game.getConfiguration().getSize();
+        var pipeline = game.getConfiguration().getRulePipeline();
+        var context = new MoveContext(game);
+        var moves = new ArrayList<Move>();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var move = Move.of(source, x, y);
+                if (pipeline.isValid(context.reset(move))) {
+                    moves.add(move);
+                }
+            }
+        }
+        return moves.toArray(new Move[0]);
+    };
+
+    /**
+     * Generate the available moves of the current player.
+     *
+     * @param game      the current game object
+     * @param generator the move generator of pieces
+     * @return available moves of all pieces of the current player
+     */
+    public static Move[] generateMoves(Game game, MoveGenerator generator) {
+        var pieceIndex = game.getPieceIndex();
+        var bitBoard = game.getBitBoard();
+        var player = game.getPlayerIndex(game.getCurrentPlayer());
+        var moves = new Move[0];
+        var numMoves = 0;
+        for (int i = 0; i < pieceIndex.getCount(player); i++) {
+            var square = pieceIndex.getSquare(player, i);
+            var pieceMoves = generator.generate(game, Place.of(bitBoard.x(square), bitBoard.y(square)));
+            if (numMoves + pieceMoves.length > moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(2 * moves.length, numMoves + pieceMoves.length));
+            }
+            System.arraycopy(pieceMoves, 0, moves, numMoves, pieceMoves.length);
+            numMoves += pieceMoves.length;
+        }
+        return Arrays.copyOf(moves, numMoves);
+    }
+
+    /**
+     * Count the sequences of legal moves of the given length from the current position, using the moves generated by
+     * pieces.
+     *
+     * @param game  the current game object, which is restored when this method returns
+     * @param depth the number of moves in each sequence
+     * @return number of sequences
+     */
+    public static long count(Game game, int depth) {
+        return count(game, depth, PIECE_MOVES);
+    }
+
+    /**
+     * Count the sequences of legal moves of the given length from the current position.
+     *
+     * @param game      the current game object, which is restored when this method returns
+     * @param depth     the number of moves in each sequence
+     * @param generator the move generator of pieces
+     * @return number of sequences
+     */
+    public static long count(Game game, int depth, MoveGenerator generator) {
+        if (depth == 0) {
+            return 1;
+        }
+        var moves = generateMoves(game, generator);
+        if (depth == 1) {
+            return moves.length;
+        }
+        var nodes = 0L;
+        for (var move : moves) {
+            var token = game.makeMove(move);
+            nodes += count(game, depth - 1, generator);
+            game.unmakeMove(token);
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: Perft <size> <depth> [numMovesProtection]");
+            return;
+        }
+        var size = Integer.parseInt(args[0]);
+        var depth = Integer.parseInt(args[1]);
+        var numMovesProtection = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        var players = new Player[]{new ComputerPlayer("White", Color.WHITE), new ComputerPlayer("Black", Color.BLACK)};
+        var configuration = new Configuration(size, players, numMovesProtection);
+        configuration.setAllInitialPieces();
+        var game = new JesonMor(configuration);
+        for (int d = 1; d <= depth; d++) {
+            var start = System.nanoTime();
+            var nodes = count(game, d);
+            var elapsed = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("depth %d: %d nodes in %d ms%n", d, nodes, elapsed);
+        }
+        // stop the workers of pieces of computer players
+        for (var worker : configuration.getPieceWorkerMap().values()) {
+            worker.stop();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package castle.comp3021.assignment.protocol;
 
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The abstract class that a game piece should extend.
@@ -11,6 +12,11 @@ public abstract class Piece implements Runnable {
      */
     Player player;
 
+    /**
+     * Called when a request is posted to the piece, set by {@link PieceExecutor} in the pooled mode
+     */
+    private volatile Runnable requestListener;
+
     public Piece(Player player, Behavior behavior) {
         this.player = player;
         this.behavior = behavior;
@@ -24,6 +30,10 @@ public abstract class Piece implements Runnable {
         return this.player;
     }
 
+    public Behavior getBehavior() {
+        return this.behavior;
+    }
+
     /**
      * Returns a char which is used to facilitate output in the console
      *
@@ -42,10 +52,50 @@ public abstract class Piece implements Runnable {
 
     public abstract Move getCandidateMove(Game game, Place source);
 
+    /**
+     * Request a candidate move without waiting for it, so that the candidate moves of all pieces can be requested at
+     * once and gathered under one deadline. The caller may cancel the future when it no longer waits for the move.
+     * By default, the move is proposed by {@link Piece#getCandidateMove(Game, Place)} in the calling thread.
+     * The piece may keep reading the game after the future is cancelled, so a game being played should be passed as
+     * a {@link Game#copyPosition()} which is not changed afterwards.
+     *
+     * @param game   the game object
+     * @param source the current place of the piece
+     * @return a future completed with the candidate move, or with null if no move is proposed
+     */
+    public CompletableFuture<Move> requestCandidateMove(Game game, Place source) {
+        return CompletableFuture.completedFuture(getCandidateMove(game, source));
+    }
+
     public abstract void pause();
 
     public abstract void resume();
 
     public abstract void terminate();
 
+    /**
+     * Handle the pending request of {@link Piece#getCandidateMove(Game, Place)} without waiting, instead of
+     * {@link Piece#run()}, when the piece has no thread of its own (see {@link PieceExecutor.Mode#POOLED}).
+     * Nothing is done if the piece is paused or terminated, or there is no pending request.
+     *
+     * @return whether a request is handled
+     */
+    public boolean handleRequest() {
+        return false;
+    }
+
+    void setRequestListener(Runnable requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Notify the executor of the piece that a request is posted or the piece is resumed.
+     */
+    protected void notifyRequest() {
+        var listener = this.requestListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
 }
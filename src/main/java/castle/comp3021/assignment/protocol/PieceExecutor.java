@@ -0,0 +1,217 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the workers of the pieces of computer players, which propose candidate moves (see
+ * {@link Piece#getCandidateMove(Game, Place)}).
+ * <p>
+ * There are three modes:
+ * <ul>
+ *     <li>{@link Mode#PLATFORM}: each piece runs {@link Piece#run()} in its own platform thread, which waits for
+ *     requests most of the time.</li>
+ *     <li>{@link Mode#VIRTUAL}: each piece runs {@link Piece#run()} in its own virtual thread, which does not hold a
+ *     native thread while waiting. Virtual threads are created by reflection, since they are not available before
+ *     Java 21; on older runtimes platform threads are used instead.</li>
+ *     <li>{@link Mode#POOLED}: pieces have no thread of their own. Each request is handled by
+ *     {@link Piece#handleRequest()} in a shared pool with a bounded number of threads, so the number of threads does
+ *     not grow with the number of pieces and games.</li>
+ * </ul>
+ * {@link PieceExecutor#start(Piece)} returns a {@link PieceWorker} in every mode: waking it after pausing or
+ * terminating a piece makes the piece react at once. Workers with threads interrupt their threads, and pooled workers
+ * hand the pending request of the piece to the pool again.
+ */
+public class PieceExecutor {
+    public enum Mode {
+        PLATFORM, VIRTUAL, POOLED
+    }
+
+    private static volatile PieceExecutor defaultExecutor = platform();
+
+    private final Mode mode;
+
+    /**
+     * Pool of the pooled mode, or null
+     */
+    private final ExecutorService pool;
+
+    private PieceExecutor(Mode mode, ExecutorService pool) {
+        this.mode = mode;
+        this.pool = pool;
+    }
+
+    /**
+     * @return an executor running each piece in its own platform thread
+     */
+    public static PieceExecutor platform() {
+        return new PieceExecutor(Mode.PLATFORM, null);
+    }
+
+    /**
+     * @return an executor running each piece in its own virtual thread, or in its own platform thread if virtual
+     * threads are not available
+     */
+    public static PieceExecutor virtual() {
+        try {
+            newVirtualThread(() -> {
+            });
+            return new PieceExecutor(Mode.VIRTUAL, null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return platform();
+        }
+    }
+
+    /**
+     * @param numThreads maximum number of threads of the pool
+     * @return an executor handling the requests of all pieces in a pool of daemon threads
+     */
+    public static PieceExecutor pooled(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("number of threads must be at least 1");
+        }
+        var counter = new AtomicInteger();
+        return new PieceExecutor(Mode.POOLED, Executors.newFixedThreadPool(numThreads, runnable -> {
+            var thread = new Thread(runnable, "piece-pool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @return the executor of new configurations, which runs pieces in platform threads unless changed
+     */
+    public static PieceExecutor getDefault() {
+        return defaultExecutor;
+    }
+
+    /**
+     * Set the executor of configurations created afterwards, e.g. one shared pool for all games of a server.
+     *
+     * @param executor the executor
+     */
+    public static void setDefault(@NotNull PieceExecutor executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * @return the mode actually used, which is {@link Mode#PLATFORM} when virtual threads are not available
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Start the worker of a piece.
+     *
+     * @param piece the piece
+     * @return the worker of the piece, which is woken after the piece is paused or terminated
+     */
+    public PieceWorker start(@NotNull Piece piece) {
+        Thread thread;
+        switch (mode) {
+            case POOLED -> {
+                var worker = new PooledWorker(piece);
+                piece.setRequestListener(worker::wake);
+                return worker;
+            }
+            case VIRTUAL -> {
+                try {
+                    thread = newVirtualThread(piece);
+                } catch (ReflectiveOperationException e) {
+                    thread = new Thread(piece);
+                }
+            }
+            default -> thread = new Thread(piece);
+        }
+        thread.start();
+        return new ThreadWorker(piece, thread);
+    }
+
+    /**
+     * Stop the threads of the pool, if any. Pieces started by this executor do not propose moves afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Thread newVirtualThread(Runnable runnable) throws ReflectiveOperationException {
+        try {
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            var unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, runnable);
+        } catch (InvocationTargetException e) {
+            // virtual threads are a preview feature which is not enabled
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                throw (UnsupportedOperationException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Worker running {@link Piece#run()} in a thread of its own
+     */
+    private static final class ThreadWorker implements PieceWorker {
+        private final Piece piece;
+
+        private final Thread thread;
+
+        private ThreadWorker(Piece piece, Thread thread) {
+            this.piece = piece;
+            this.thread = thread;
+        }
+
+        @Override
+        public void wake() {
+            thread.interrupt();
+        }
+
+        @Override
+        public Piece getPiece() {
+            return piece;
+        }
+
+        @Override
+        public Thread getThread() {
+            return thread;
+        }
+    }
+
+    /**
+     * Worker handling the pending requests of a piece in the pool by {@link Piece#handleRequest()}
+     */
+    private final class PooledWorker implements PieceWorker {
+        private final Piece piece;
+
+        private PooledWorker(Piece piece) {
+            this.piece = piece;
+        }
+
+        @Override
+        public void wake() {
+            try {
+                pool.execute(piece::handleRequest);
+            } catch (RejectedExecutionException e) {
+                // the pool is shut down, so the piece does not propose moves any more
+            }
+        }
+
+        @Override
+        public Piece getPiece() {
+            return piece;
+        }
+
+        @Override
+        public Thread getThread() {
+            return null;
+        }
+    }
+}
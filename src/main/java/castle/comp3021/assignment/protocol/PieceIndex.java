@@ -0,0 +1,97 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.Arrays;
+
+/**
+ * Index from each player to the squares of the pieces of the player on the gameboard.
+ * <p>
+ * Squares are indexed by {@code x * size + y}, the same as {@link BitBoard}.
+ * Adding and removing a piece are O(1), and the pieces of a player can be iterated without scanning the mostly empty
+ * board:
+ * {@code for (int i = 0; i < index.getCount(player); i++) { var square = index.getSquare(player, i); ... }}
+ * <p>
+ * The order of squares of a player is unspecified and changes when pieces are removed.
+ * The piece index of a game is maintained by {@link Game} and should be treated as read-only by other classes.
+ */
+public class PieceIndex implements Cloneable {
+    /**
+     * Squares of pieces of each player, indexed by [player][slot]
+     */
+    private int[][] squares;
+
+    /**
+     * Number of pieces of each player
+     */
+    private int[] counts;
+
+    /**
+     * Slot of each occupied square in the list of its owner, or -1 if the square is empty
+     */
+    private int[] slots;
+
+    public PieceIndex(int size) {
+        this.squares = new int[BitBoard.NUM_PLAYERS][size * size];
+        this.counts = new int[BitBoard.NUM_PLAYERS];
+        this.slots = new int[size * size];
+        Arrays.fill(this.slots, -1);
+    }
+
+    /**
+     * Add a piece of the player.
+     *
+     * @param player index of player in {@link Configuration#getPlayers()}
+     * @param square the square of the piece
+     */
+    public void add(int player, int square) {
+        var slot = counts[player]++;
+        squares[player][slot] = square;
+        slots[square] = slot;
+    }
+
+    /**
+     * Remove a piece of the player, by moving the last piece of the player into its slot.
+     *
+     * @param player index of player in {@link Configuration#getPlayers()}
+     * @param square the square of the piece
+     */
+    public void remove(int player, int square) {
+        var slot = slots[square];
+        var last = squares[player][--counts[player]];
+        squares[player][slot] = last;
+        slots[last] = slot;
+        slots[square] = -1;
+    }
+
+    /**
+     * @param player index of player
+     * @return number of pieces of the player
+     */
+    public int getCount(int player) {
+        return counts[player];
+    }
+
+    /**
+     * @param player index of player
+     * @param i      index of piece, from 0 (inclusive) to {@link PieceIndex#getCount(int)} (exclusive)
+     * @return the square of the piece
+     */
+    public int getSquare(int player, int i) {
+        return squares[player][i];
+    }
+
+    public boolean contains(int square) {
+        return slots[square] >= 0;
+    }
+
+    @Override
+    public PieceIndex clone() throws CloneNotSupportedException {
+        var cloned = (PieceIndex) super.clone();
+        cloned.squares = new int[BitBoard.NUM_PLAYERS][];
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            cloned.squares[player] = this.squares[player].clone();
+        }
+        cloned.counts = this.counts.clone();
+        cloned.slots = this.slots.clone();
+        return cloned;
+    }
+}
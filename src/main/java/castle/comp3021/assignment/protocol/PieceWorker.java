@@ -0,0 +1,33 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Handle of the worker proposing the candidate moves of a piece, started by {@link PieceExecutor#start(Piece)}.
+ * The worker is a thread of its own, or the pending requests of the piece handled in a shared pool.
+ */
+public interface PieceWorker {
+    /**
+     * Make the worker react at once after the piece is paused, resumed or terminated, e.g. by interrupting its thread
+     * waiting for requests.
+     */
+    void wake();
+
+    /**
+     * Terminate the piece and wake the worker, so that it stops proposing moves.
+     */
+    default void stop() {
+        getPiece().terminate();
+        wake();
+    }
+
+    /**
+     * @return the piece
+     */
+    Piece getPiece();
+
+    /**
+     * @return the thread of the worker, or null if the piece has no thread of its own
+     */
+    @Nullable Thread getThread();
+}
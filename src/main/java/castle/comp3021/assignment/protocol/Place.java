@@ -9,6 +9,21 @@ import java.util.Objects;
  * x and y coordinates of a place on gameboard are two fields of this class.
  */
 public class Place implements Cloneable {
+    /**
+     * Canonical places are interned for coordinates in [0, CACHE_SIZE), which covers the largest gameboard (26x26).
+     */
+    static final int CACHE_SIZE = 26;
+
+    private static final Place[] CACHE = new Place[CACHE_SIZE * CACHE_SIZE];
+
+    static {
+        for (int x = 0; x < CACHE_SIZE; x++) {
+            for (int y = 0; y < CACHE_SIZE; y++) {
+                CACHE[x * CACHE_SIZE + y] = new Place(x, y);
+            }
+        }
+    }
+
     /**
      * x coordinate
      */
@@ -24,6 +39,29 @@ public class Place implements Cloneable {
         this.y = y;
     }
 
+    /**
+     * Get the canonical place of the coordinates.
+     * Places on the gameboard are interned, so looking them up does not allocate.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the canonical place, or a new place if the coordinates are outside any gameboard
+     */
+    public static Place of(int x, int y) {
+        var index = cacheIndex(x, y);
+        return index < 0 ? new Place(x, y) : CACHE[index];
+    }
+
+    /**
+     * @return index of the coordinates in the interned table, or -1 if they are not interned
+     */
+    static int cacheIndex(int x, int y) {
+        if (x < 0 || x >= CACHE_SIZE || y < 0 || y >= CACHE_SIZE) {
+            return -1;
+        }
+        return x * CACHE_SIZE + y;
+    }
+
 
     /* Getters start */
     public int x() {
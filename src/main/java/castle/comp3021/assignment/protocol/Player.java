@@ -93,24 +93,8 @@ public abstract class Player implements Cloneable {
     public abstract @NotNull Move nextMove(Game game, Move[] availableMoves);
 
     public String validateMove(Game game, Move move) {
-        var rules = new Rule[]{
-                new OutOfBoundaryRule(),
-                new OccupiedRule(),
-                new VacantRule(),
-                new NilMoveRule(),
-                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                new ArcherMoveRule(),
-                new KnightMoveRule(),
-                new KnightBlockRule(),
-                new CriticalRegionRule(),
-        };
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return rule.getDescription();
-            }
-        }
-        return null;
+        var violation = game.getConfiguration().getRulePipeline().findViolation(new MoveContext(game, move));
+        return violation == null ? null : violation.getDescription();
     }
 
     @Override
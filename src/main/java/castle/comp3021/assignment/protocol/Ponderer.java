@@ -0,0 +1,192 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background search of the positions after the likely replies of the opponent, run during the turn of the opponent,
+ * so that the move of a computer player is ready when the opponent moves.
+ * <p>
+ * {@link Ponderer#start(Game, Move, long)} plays the move just chosen on a {@link Game#copyPosition()}, and searches
+ * the position after each reply of the opponent by {@link AlphaBetaSearch} in a daemon thread, one reply at a time.
+ * Replies are taken in order of how likely they are, by the gain of the opponent in {@link Evaluator} (see
+ * {@link SmartMoveFeatures#getEvaluationDelta(int)}); replies winning the game at once are skipped, since no move is
+ * needed after them. Each search has the time budget of a normal search, and its best move and completed depth are
+ * recorded by the hash of the position. The searches share the transposition table of the game, so a later search of
+ * a pondered position reuses their results.
+ * <p>
+ * {@link Ponderer#stop(Game)} is called when the opponent has moved. It cancels the searches of other replies, and lets
+ * the search of the position actually reached finish, since its result is about to be used.
+ */
+public class Ponderer {
+    /**
+     * Result of searching a pondered position
+     */
+    public static final class Result {
+        private final Move move;
+
+        private final int depth;
+
+        private Result(Move move, int depth) {
+            this.move = move;
+            this.depth = depth;
+        }
+
+        /**
+         * @return the best move among all available moves of the position
+         */
+        public Move getMove() {
+            return move;
+        }
+
+        /**
+         * @return the depth of the deepest iteration completed by the search
+         */
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private final Map<Long, Result> results = new ConcurrentHashMap<>();
+
+    private Thread thread;
+
+    /**
+     * Set when pondering should stop, so that no more search is started
+     */
+    private boolean stopping;
+
+    private AlphaBetaSearch currentSearch;
+
+    private long currentHash;
+
+    /**
+     * Start pondering the replies to a move, after stopping the previous pondering.
+     * Results of the previous pondering are discarded.
+     *
+     * @param game             the game, in the position before the move, which is not modified
+     * @param move             the move chosen by the player to move
+     * @param timeBudgetMillis time budget of searching each reply
+     */
+    public void start(@NotNull Game game, @NotNull Move move, long timeBudgetMillis) {
+        cancel();
+        results.clear();
+        var position = game.copyPosition();
+        var table = game.getTranspositionTable();
+        position.makeMove(move);
+        synchronized (this) {
+            stopping = false;
+            currentSearch = null;
+            thread = new Thread(() -> ponder(position, table, timeBudgetMillis), "ponder");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void ponder(Game position, TranspositionTable table, long timeBudgetMillis) {
+        var replies = Perft.generateMoves(position, Perft.PIECE_MOVES);
+        var features = SmartMoveFeatures.extract(position, replies);
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < features.size(); i++) {
+            if (!features.isWinning(i)) {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.comparingInt(features::getEvaluationDelta).reversed());
+        for (var i : order) {
+            var token = position.makeMove(replies[i]);
+            try {
+                var moves = Perft.generateMoves(position, Perft.PIECE_MOVES);
+                if (moves.length == 0) {
+                    continue;
+                }
+                var search = new AlphaBetaSearch(position, timeBudgetMillis, table);
+                var hash = position.getPositionHash();
+                synchronized (this) {
+                    if (stopping) {
+                        return;
+                    }
+                    currentSearch = search;
+                    currentHash = hash;
+                }
+                var move = search.search(moves);
+                if (search.getCompletedDepth() > 0) {
+                    results.put(hash, new Result(move, search.getCompletedDepth()));
+                }
+            } finally {
+                position.unmakeMove(token);
+            }
+        }
+    }
+
+    /**
+     * Stop pondering because the opponent has moved, and wait for the search of the current position if it is being
+     * searched.
+     *
+     * @param game the game, in the position after the move of the opponent
+     */
+    public void stop(@NotNull Game game) {
+        halt(game.getPositionHash(), true);
+    }
+
+    /**
+     * Stop pondering at once, e.g. when the game is over.
+     */
+    public void cancel() {
+        halt(0, false);
+    }
+
+    private void halt(long keptHash, boolean keep) {
+        Thread pondering;
+        synchronized (this) {
+            if (thread == null) {
+                return;
+            }
+            stopping = true;
+            if (currentSearch != null && !(keep && currentHash == keptHash)) {
+                currentSearch.cancel();
+            }
+            pondering = thread;
+            thread = null;
+        }
+        try {
+            pondering.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                if (currentSearch != null) {
+                    currentSearch.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the replies are still being searched
+     */
+    public synchronized boolean isPondering() {
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * Get the result of pondering the current position.
+     *
+     * @param game the game
+     * @return the result, or null if the position has not been pondered
+     */
+    public @Nullable Result getResult(@NotNull Game game) {
+        return results.get(game.getPositionHash());
+    }
+
+    /**
+     * @return number of positions pondered
+     */
+    public int getNumResults() {
+        return results.size();
+    }
+}
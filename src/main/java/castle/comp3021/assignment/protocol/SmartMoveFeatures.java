@@ -0,0 +1,185 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Knight;
+
+/**
+ * Features of the available moves used by {@link Strategy#SMART}, computed in one pass over the moves.
+ * <p>
+ * The features of the i-th move are stored at index i of primitive arrays, and the number of enemy pieces is counted
+ * once for all moves by {@link Game#getPieceIndex()}.
+ */
+public final class SmartMoveFeatures {
+    private static final int[] BLOCKING_OFFSET_X = {-1, 1, 0, 0};
+    private static final int[] BLOCKING_OFFSET_Y = {0, 0, -1, 1};
+
+    private final Move[] moves;
+
+    private final boolean[] winning;
+
+    private final boolean[] knightMove;
+
+    private final int[] destinationCenterDistance;
+
+    private final int[] centerDistanceDelta;
+
+    private final boolean[] capture;
+
+    private final boolean[] criticalCapture;
+
+    private final boolean[] knightCapture;
+
+    private final boolean[] blocking;
+
+    private final int[] moveDistance;
+
+    private final int[] evaluationDelta;
+
+    private SmartMoveFeatures(Move[] moves) {
+        this.moves = moves;
+        this.winning = new boolean[moves.length];
+        this.knightMove = new boolean[moves.length];
+        this.destinationCenterDistance = new int[moves.length];
+        this.centerDistanceDelta = new int[moves.length];
+        this.capture = new boolean[moves.length];
+        this.criticalCapture = new boolean[moves.length];
+        this.knightCapture = new boolean[moves.length];
+        this.blocking = new boolean[moves.length];
+        this.moveDistance = new int[moves.length];
+        this.evaluationDelta = new int[moves.length];
+    }
+
+    /**
+     * Extract the features of moves of the current player.
+     *
+     * @param game  the current game object
+     * @param moves the available moves of the current player
+     * @return the features
+     */
+    public static SmartMoveFeatures extract(Game game, Move[] moves) {
+        var features = new SmartMoveFeatures(moves);
+        var center = game.getCentralPlace();
+        var currentPlayer = game.currentPlayer;
+        var gameOverAllowed = game.getNumMoves() >= game.getConfiguration().getNumMovesProtection();
+        var pieceIndex = game.getPieceIndex();
+        var evaluator = game.getEvaluator();
+        var bitBoard = game.getBitBoard();
+        var enemyPieces = pieceIndex.getCount(0) + pieceIndex.getCount(1);
+        if (currentPlayer != null) {
+            enemyPieces -= pieceIndex.getCount(game.getPlayerIndex(currentPlayer));
+        }
+        for (int i = 0; i < moves.length; i++) {
+            var source = moves[i].getSource();
+            var destination = moves[i].getDestination();
+            var sourcePiece = game.getPiece(source);
+            var destinationPiece = game.getPiece(destination);
+            var isKnight = sourcePiece instanceof Knight;
+            var isCapture = destinationPiece != null && !destinationPiece.getPlayer().equals(currentPlayer);
+
+            var sourceDistance = Math.abs(source.x() - center.x()) + Math.abs(source.y() - center.y());
+            var distanceX = Math.abs(destination.x() - center.x());
+            var distanceY = Math.abs(destination.y() - center.y());
+            features.knightMove[i] = isKnight;
+            features.destinationCenterDistance[i] = distanceX + distanceY;
+            features.centerDistanceDelta[i] = distanceX + distanceY - sourceDistance;
+            features.moveDistance[i] = Math.abs(source.x() - destination.x()) + Math.abs(source.y() - destination.y());
+            if (sourcePiece != null) {
+                var type = BitBoard.typeOf(sourcePiece);
+                var destinationSquare = bitBoard.index(destination.x(), destination.y());
+                features.evaluationDelta[i] = evaluator.valueOf(type, destinationSquare)
+                        - evaluator.valueOf(type, bitBoard.index(source.x(), source.y()));
+                if (isCapture) {
+                    features.evaluationDelta[i] +=
+                            evaluator.valueOf(BitBoard.typeOf(destinationPiece), destinationSquare);
+                }
+            }
+
+            features.winning[i] = gameOverAllowed
+                    && (isKnight && sourceDistance == 0 && distanceX + distanceY != 0 || isCapture && enemyPieces == 1);
+            features.capture[i] = isCapture;
+            features.criticalCapture[i] = isCapture
+                    && (distanceX == 1 && distanceY == 2 || distanceX == 2 && distanceY == 1);
+            features.knightCapture[i] = isCapture && destinationPiece instanceof Knight;
+            for (int j = 0; j < BLOCKING_OFFSET_X.length; j++) {
+                var adjacentPiece = game.getPiece(destination.x() + BLOCKING_OFFSET_X[j],
+                        destination.y() + BLOCKING_OFFSET_Y[j]);
+                if (adjacentPiece instanceof Knight && !adjacentPiece.getPlayer().equals(currentPlayer)) {
+                    features.blocking[i] = true;
+                    break;
+                }
+            }
+        }
+        return features;
+    }
+
+    public int size() {
+        return moves.length;
+    }
+
+    public Move getMove(int i) {
+        return moves[i];
+    }
+
+    /**
+     * @return whether the move wins the game at once, by a knight leaving the central place or capturing the last
+     * enemy piece
+     */
+    public boolean isWinning(int i) {
+        return winning[i];
+    }
+
+    public boolean isKnightMove(int i) {
+        return knightMove[i];
+    }
+
+    /**
+     * @return the Manhattan distance from the destination to the central place
+     */
+    public int getDestinationCenterDistance(int i) {
+        return destinationCenterDistance[i];
+    }
+
+    /**
+     * @return the change of the Manhattan distance to the central place by the move, negative if the move is towards
+     * the central place
+     */
+    public int getCenterDistanceDelta(int i) {
+        return centerDistanceDelta[i];
+    }
+
+    public boolean isCapture(int i) {
+        return capture[i];
+    }
+
+    /**
+     * @return whether the move captures an enemy piece one knight move away from the central place
+     */
+    public boolean isCriticalCapture(int i) {
+        return criticalCapture[i];
+    }
+
+    public boolean isKnightCapture(int i) {
+        return knightCapture[i];
+    }
+
+    /**
+     * @return whether the destination is next to an enemy knight, which may block it
+     */
+    public boolean isBlocking(int i) {
+        return blocking[i];
+    }
+
+    /**
+     * @return the Manhattan distance of the move
+     */
+    public int getMoveDistance(int i) {
+        return moveDistance[i];
+    }
+
+    /**
+     * @return the change of {@link Evaluator#evaluate(int)} of the current player by the move, computed from the
+     * values of the pieces on the squares without making the move
+     */
+    public int getEvaluationDelta(int i) {
+        return evaluationDelta[i];
+    }
+}
@@ -2,5 +2,13 @@ package castle.comp3021.assignment.protocol;
 
 public enum Strategy {
     RANDOM,
-    SMART
+    SMART,
+    /**
+     * Look ahead with {@link AlphaBetaSearch} within a time budget per move.
+     */
+    SEARCH,
+    /**
+     * Sample games with {@link MonteCarloTreeSearch} within a time budget per move.
+     */
+    MCTS
 }
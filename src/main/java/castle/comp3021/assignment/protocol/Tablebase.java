@@ -0,0 +1,450 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Knight;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Endgame tablebase: the exact result of every position with few knights and archers on a small gameboard, built by
+ * {@link TablebaseGenerator}.
+ * <p>
+ * Positions are grouped into tables by material, i.e. the number of knights and archers of each player (see
+ * {@link Tablebase#materialOf(int, int, int, int)}). Within a table, a position is indexed by the player to move and
+ * the squares of the pieces, ordered by player, then knights before archers, then ascending squares (see
+ * {@link Tablebase#indexOf(Game)}). The value of a position is one byte from the view of the player to move:
+ * - {@link Tablebase#DRAW}: neither player can force a win, or the result depends on the scores of players, which is
+ * the case when a player may end up without available moves;
+ * - 1 to {@link Tablebase#MAX_DISTANCE}: the player to move wins in that many plies, by a knight leaving the central
+ * place or by capturing the last enemy piece;
+ * - {@link Tablebase#LOSS} + n: the player to move loses in n plies against the best defence.
+ * <p>
+ * The tables assume that the protection window has passed, and are only valid for the size and the critical region
+ * recorded in the file, since the critical region limits the moves of knights.
+ * <p>
+ * A tablebase file is a header of big-endian ints (magic number, version, size, critical region size, critical region
+ * capacity, maximum number of pieces and number of tables), a directory of (material, offset, length) entries, and then
+ * the tables. The file is memory-mapped, so only the probed pages are read.
+ */
+public class Tablebase {
+    /**
+     * "JMTB" in ASCII
+     */
+    public static final int MAGIC = 0x4A4D5442;
+
+    public static final int VERSION = 1;
+
+    public static final int HEADER_BYTES = 28;
+
+    public static final int DIRECTORY_ENTRY_BYTES = 16;
+
+    public static final int DRAW = 0;
+
+    /**
+     * Values above this value are losses.
+     */
+    public static final int LOSS = 128;
+
+    /**
+     * Largest distance to the end of the game recorded in tables
+     */
+    public static final int MAX_DISTANCE = 126;
+
+    /**
+     * Value of indexes that are not positions, e.g. two pieces on the same square
+     */
+    public static final int INVALID = 255;
+
+    /**
+     * Returned by {@link Tablebase#probe(Game)} when the position is not covered by the tablebase.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * Largest number of pieces of one kind (player and type), so that materials are encoded in base 5
+     */
+    static final int MAX_PIECES_OF_KIND = 4;
+
+    /**
+     * Kinds of pieces in the order of indexing: knights of the first player, archers of the first player, knights of
+     * the second player, archers of the second player
+     */
+    static final int NUM_KINDS = 4;
+
+    /**
+     * Board sizes of the default tablebases shipped as resources, see {@link Tablebase#getDefault(int)}
+     */
+    static final Set<Integer> DEFAULT_SIZES = Set.of(5, 7);
+
+    private static final Map<Integer, Tablebase> DEFAULT_TABLEBASES = new ConcurrentHashMap<>();
+
+    private static final Tablebase EMPTY = new Tablebase(0, 0, 0, 0, Map.of());
+
+    private final int size;
+
+    private final int criticalRegionSize;
+
+    private final int criticalRegionCapacity;
+
+    private final int maxPieces;
+
+    private final Map<Integer, ByteBuffer> tables;
+
+    Tablebase(int size, int criticalRegionSize, int criticalRegionCapacity, int maxPieces,
+              Map<Integer, ByteBuffer> tables) {
+        this.size = size;
+        this.criticalRegionSize = criticalRegionSize;
+        this.criticalRegionCapacity = criticalRegionCapacity;
+        this.maxPieces = maxPieces;
+        this.tables = tables;
+    }
+
+    /**
+     * Get the default tablebase of a board size, which is the resource "tablebase-size.bin" next to this class, loaded
+     * once when first used. A shipped tablebase (see {@link Tablebase#DEFAULT_SIZES}) that is missing or cannot be
+     * loaded is reported on the standard error.
+     *
+     * @param size size of gameboard
+     * @return the tablebase, which is empty if it is not available
+     */
+    public static Tablebase getDefault(int size) {
+        return DEFAULT_TABLEBASES.computeIfAbsent(size, Tablebase::loadDefault);
+    }
+
+    private static Tablebase loadDefault(int size) {
+        var resource = "tablebase-" + size + ".bin";
+        var url = Tablebase.class.getResource(resource);
+        if (url == null) {
+            if (DEFAULT_SIZES.contains(size)) {
+                System.err.println("Tablebase " + resource + " is not on the class path, so the default tablebase of "
+                        + "size " + size + " is empty");
+            }
+            return EMPTY;
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return load(Path.of(url.toURI()));
+            }
+            // e.g. inside a jar, where the tablebase cannot be mapped
+            try (InputStream in = url.openStream()) {
+                var bytes = in.readAllBytes();
+                var buffer = ByteBuffer.allocateDirect(bytes.length);
+                buffer.put(bytes).flip();
+                return of(buffer);
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            System.err.println("Tablebase " + url + " cannot be loaded, so the default tablebase of size " + size
+                    + " is empty: " + e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Memory-map a tablebase file.
+     *
+     * @param path the path of the tablebase
+     * @return the tablebase
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a tablebase
+     */
+    public static Tablebase load(@NotNull Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static Tablebase of(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not a tablebase");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("unsupported version of tablebase " + buffer.getInt(4));
+        }
+        var size = buffer.getInt(8);
+        var numTables = buffer.getInt(24);
+        if (numTables < 0 || HEADER_BYTES + (long) numTables * DIRECTORY_ENTRY_BYTES > buffer.limit()) {
+            throw new IllegalArgumentException("tablebase is truncated");
+        }
+        var tables = new HashMap<Integer, ByteBuffer>();
+        for (int i = 0; i < numTables; i++) {
+            var entry = HEADER_BYTES + i * DIRECTORY_ENTRY_BYTES;
+            var material = buffer.getInt(entry);
+            var offset = buffer.getLong(entry + 4);
+            var length = buffer.getInt(entry + 12);
+            if (length != tableLength(size, material) || offset < 0 || offset + length > buffer.limit()) {
+                throw new IllegalArgumentException("tablebase is truncated");
+            }
+            tables.put(material, buffer.slice((int) offset, length));
+        }
+        return new Tablebase(size, buffer.getInt(12), buffer.getInt(16), buffer.getInt(20), tables);
+    }
+
+    /**
+     * Serialize tables into the format of the tablebase file.
+     *
+     * @param size                   size of gameboard
+     * @param criticalRegionSize     size of the critical region
+     * @param criticalRegionCapacity capacity of the critical region
+     * @param maxPieces              largest number of pieces of positions in the tables
+     * @param tables                 the values of the positions of each material
+     * @return the content of the file
+     */
+    public static ByteBuffer write(int size, int criticalRegionSize, int criticalRegionCapacity, int maxPieces,
+                                   @NotNull Map<Integer, byte[]> tables) {
+        var materials = tables.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        var offset = HEADER_BYTES + (long) materials.length * DIRECTORY_ENTRY_BYTES;
+        var length = offset;
+        for (var material : materials) {
+            length += tables.get(material).length;
+        }
+        var buffer = ByteBuffer.allocate(Math.toIntExact(length));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(criticalRegionSize).putInt(criticalRegionCapacity)
+                .putInt(maxPieces).putInt(materials.length);
+        for (var material : materials) {
+            buffer.putInt(material).putLong(offset).putInt(tables.get(material).length);
+            offset += tables.get(material).length;
+        }
+        for (var material : materials) {
+            buffer.put(tables.get(material));
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Encode a material.
+     *
+     * @return the material, which is the number of pieces of each kind in base {@link Tablebase#MAX_PIECES_OF_KIND} + 1
+     */
+    public static int materialOf(int knights0, int archers0, int knights1, int archers1) {
+        var base = MAX_PIECES_OF_KIND + 1;
+        return knights0 + base * (archers0 + base * (knights1 + base * archers1));
+    }
+
+    /**
+     * @param material the material
+     * @param kind     the kind of pieces, from 0 to {@link Tablebase#NUM_KINDS} - 1
+     * @return number of pieces of the kind
+     */
+    public static int countOf(int material, int kind) {
+        for (int i = 0; i < kind; i++) {
+            material /= MAX_PIECES_OF_KIND + 1;
+        }
+        return material % (MAX_PIECES_OF_KIND + 1);
+    }
+
+    /**
+     * @return total number of pieces of the material
+     */
+    public static int piecesOf(int material) {
+        var pieces = 0;
+        for (int kind = 0; kind < NUM_KINDS; kind++) {
+            pieces += countOf(material, kind);
+        }
+        return pieces;
+    }
+
+    /**
+     * @return number of bytes of the table of a material, which covers every assignment of squares to the pieces
+     */
+    static int tableLength(int size, int material) {
+        var length = 2L;
+        for (int i = 0; i < piecesOf(material); i++) {
+            length *= (long) size * size;
+        }
+        return Math.toIntExact(length);
+    }
+
+    /**
+     * @return the material of the pieces on the gameboard, or -1 if there is a piece other than knights and archers or
+     * too many pieces of a kind
+     */
+    static int materialOf(Game game) {
+        var bitBoard = game.getBitBoard();
+        var counts = new int[NUM_KINDS];
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            if (bitBoard.countPieces(player, BitBoard.OTHER) > 0) {
+                return -1;
+            }
+            counts[2 * player] = bitBoard.countPieces(player, BitBoard.KNIGHT);
+            counts[2 * player + 1] = bitBoard.countPieces(player, BitBoard.ARCHER);
+        }
+        for (var count : counts) {
+            if (count > MAX_PIECES_OF_KIND) {
+                return -1;
+            }
+        }
+        return materialOf(counts[0], counts[1], counts[2], counts[3]);
+    }
+
+    /**
+     * Compute the index of the current position in the table of its material.
+     *
+     * @param game the game
+     * @return the index
+     */
+    static int indexOf(Game game) {
+        var bitBoard = game.getBitBoard();
+        var numSquares = bitBoard.getSize() * bitBoard.getSize();
+        var index = 0;
+        var scale = 2;
+        for (int kind = 0; kind < NUM_KINDS; kind++) {
+            var pieces = bitBoard.getPieces(kind / 2, kind % 2 == 0 ? BitBoard.KNIGHT : BitBoard.ARCHER);
+            // ascending squares within a kind
+            for (var square = BitBoard.nextSquare(pieces, 0); square >= 0;
+                 square = BitBoard.nextSquare(pieces, square + 1)) {
+                index += scale * square;
+                scale *= numSquares;
+            }
+        }
+        return index + game.getCurrentPlayerID();
+    }
+
+    /**
+     * @return whether the tablebase has the tables of the rules of the game
+     */
+    private boolean covers(Game game) {
+        var configuration = game.getConfiguration();
+        return configuration.getSize() == size
+                && configuration.getCriticalRegionSize() == criticalRegionSize
+                && configuration.getCriticalRegionCapacity() == criticalRegionCapacity
+                && game.getNumMoves() >= configuration.getNumMovesProtection();
+    }
+
+    /**
+     * Look up the value of the current position.
+     *
+     * @param game the game
+     * @return the value from the view of the player to move, or {@link Tablebase#NOT_FOUND} if the position is not in
+     * the tablebase
+     */
+    public int probe(@NotNull Game game) {
+        if (tables.isEmpty() || !covers(game)) {
+            return NOT_FOUND;
+        }
+        var material = materialOf(game);
+        var table = material < 0 ? null : tables.get(material);
+        if (table == null) {
+            return NOT_FOUND;
+        }
+        var value = table.get(indexOf(game)) & 0xFF;
+        return value == INVALID ? NOT_FOUND : value;
+    }
+
+    public static boolean isWin(int value) {
+        return value > DRAW && value < LOSS;
+    }
+
+    public static boolean isLoss(int value) {
+        return value > LOSS && value < INVALID;
+    }
+
+    /**
+     * @return the number of plies to the end of the game, or 0 for a draw
+     */
+    public static int distanceOf(int value) {
+        return isLoss(value) ? value - LOSS : value;
+    }
+
+    /**
+     * Choose the best moves of the current position.
+     * A move winning in the fewest plies is chosen if there is one; otherwise the moves keeping a draw, and otherwise
+     * the moves losing in the most plies.
+     *
+     * @param game  the game, which is not modified
+     * @param moves the moves to choose from, which should be available moves of the player to move
+     * @return the best moves, or null if the position is not in the tablebase
+     */
+    public @Nullable Move[] bestMoves(@NotNull Game game, @NotNull Move[] moves) {
+        if (moves.length == 0 || probe(game) == NOT_FOUND) {
+            return null;
+        }
+        var position = game.copyPosition();
+        var player = position.getCurrentPlayerID();
+        var values = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            var source = moves[i].getSource();
+            var captured = position.getPiece(moves[i].getDestination());
+            if (position.getPiece(source) instanceof Knight && position.isCentralPlace(source.x(), source.y())
+                    || captured != null && position.getPieceIndex().getCount(1 - player) == 1) {
+                values[i] = 1;
+                continue;
+            }
+            var token = position.makeMove(moves[i]);
+            var childValue = probe(position);
+            position.unmakeMove(token);
+            if (childValue == NOT_FOUND) {
+                return null;
+            }
+            // the value of the child is from the view of the other player
+            if (isLoss(childValue)) {
+                values[i] = distanceOf(childValue) + 1;
+            } else if (isWin(childValue)) {
+                values[i] = LOSS + Math.min(MAX_DISTANCE, childValue + 1);
+            } else {
+                values[i] = DRAW;
+            }
+        }
+        var best = 0;
+        for (int i = 1; i < moves.length; i++) {
+            if (isBetter(values[i], values[best])) {
+                best = i;
+            }
+        }
+        if (isWin(values[best])) {
+            return new Move[]{moves[best]};
+        }
+        var bestValue = values[best];
+        var count = 0;
+        var bestMoves = new Move[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            if (values[i] == bestValue) {
+                bestMoves[count++] = moves[i];
+            }
+        }
+        return Arrays.copyOf(bestMoves, count);
+    }
+
+    private static boolean isBetter(int value, int other) {
+        if (isWin(value) != isWin(other)) {
+            return isWin(value);
+        }
+        if (isWin(value)) {
+            return value < other;
+        }
+        if (isLoss(value) != isLoss(other)) {
+            return isLoss(other);
+        }
+        return value > other;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the largest number of pieces of positions in the tables
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return number of tables, i.e. materials, in the tablebase
+     */
+    public int getNumTables() {
+        return tables.size();
+    }
+}
@@ -0,0 +1,375 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ConsolePlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Offline generator of a {@link Tablebase} by retrograde analysis.
+ * <p>
+ * Tables are generated in the order of the number of pieces, so that the table of the material left after a capture
+ * is always complete. Each table is solved in passes, where pass n finds the positions won or lost in exactly n plies:
+ * - pass 1 generates the moves of every position with the rules of the game (including the capacity of the critical
+ * region), marks the positions where the player to move wins at once by a knight leaving the central place or by
+ * capturing the last enemy piece, and records the positions reached by the other moves;
+ * - pass n marks a position as won if a move reaches a position lost in n - 1 plies, and as lost if every move reaches
+ * a position won in fewer than n plies.
+ * The passes stop when a pass marks no position; the positions left are draws. Positions without available moves are
+ * also left as draws, since their result depends on the scores of players.
+ * <p>
+ * Every pass is split across threads. When a work directory is given, each finished table is saved there and loaded
+ * instead of being generated again, so an interrupted generation resumes from the last finished table.
+ * <p>
+ * Usage: {@code java castle.comp3021.assignment.protocol.TablebaseGenerator <output> <size> [maxPieces] [threads]
+ * [workDirectory] [criticalRegionSize] [criticalRegionCapacity]}
+ */
+public class TablebaseGenerator {
+    /**
+     * Number of positions of a task of a pass
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Configuration configuration;
+
+    private final int numThreads;
+
+    private final Path workDirectory;
+
+    private final Map<Integer, byte[]> tables = new HashMap<>();
+
+    private int maxPieces;
+
+    /**
+     * Called after each table is generated or loaded, or null
+     */
+    private ObjLongConsumer<String> progressListener;
+
+    /**
+     * @param size                   size of gameboard
+     * @param criticalRegionSize     size of the critical region
+     * @param criticalRegionCapacity capacity of the critical region
+     * @param numThreads             number of threads generating a table
+     * @param workDirectory          directory of finished tables, or null to keep them only in memory
+     */
+    public TablebaseGenerator(int size, int criticalRegionSize, int criticalRegionCapacity, int numThreads,
+                              @Nullable Path workDirectory) {
+        var players = new Player[]{new ConsolePlayer("White", Color.WHITE), new ConsolePlayer("Black", Color.BLACK)};
+        // the tables assume that the protection window has passed
+        this.configuration = new Configuration(size, players, 0, criticalRegionSize, criticalRegionCapacity);
+        this.configuration.validateConfiguration();
+        this.numThreads = Math.max(1, numThreads);
+        this.workDirectory = workDirectory;
+    }
+
+    /**
+     * Report the progress of {@link TablebaseGenerator#generate(int)}, e.g. on the console.
+     *
+     * @param progressListener called after each table with the material (see
+     *                         {@link TablebaseGenerator#describe(int)}) and the milliseconds taken, or null
+     */
+    public void setProgressListener(@Nullable ObjLongConsumer<String> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Generate the tables of all materials with at most the given number of pieces, and at least one piece of each
+     * player.
+     *
+     * @param maxPieces the largest number of pieces
+     * @throws IOException if a table cannot be saved or loaded from the work directory
+     */
+    public void generate(int maxPieces) throws IOException {
+        this.maxPieces = Math.max(this.maxPieces, maxPieces);
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            for (var material : materialsOf(pieces)) {
+                if (!tables.containsKey(material)) {
+                    var start = System.nanoTime();
+                    tables.put(material, loadOrSolve(material));
+                    if (progressListener != null) {
+                        progressListener.accept(describe(material), (System.nanoTime() - start) / 1_000_000);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the materials with the given number of pieces and at least one piece of each player
+     */
+    static List<Integer> materialsOf(int pieces) {
+        var materials = new ArrayList<Integer>();
+        var max = Tablebase.MAX_PIECES_OF_KIND;
+        for (int knights0 = 0; knights0 <= max; knights0++) {
+            for (int archers0 = 0; archers0 <= max; archers0++) {
+                for (int knights1 = 0; knights1 <= max; knights1++) {
+                    var archers1 = pieces - knights0 - archers0 - knights1;
+                    if (archers1 < 0 || archers1 > max || knights0 + archers0 == 0 || knights1 + archers1 == 0) {
+                        continue;
+                    }
+                    materials.add(Tablebase.materialOf(knights0, archers0, knights1, archers1));
+                }
+            }
+        }
+        return materials;
+    }
+
+    /**
+     * @return the material in the form of e.g. "KA-K", with the pieces of the first player first
+     */
+    static String describe(int material) {
+        var builder = new StringBuilder();
+        for (int kind = 0; kind < Tablebase.NUM_KINDS; kind++) {
+            if (kind == 2) {
+                builder.append('-');
+            }
+            builder.append(String.valueOf(kind % 2 == 0 ? 'K' : 'A').repeat(Tablebase.countOf(material, kind)));
+        }
+        return builder.toString();
+    }
+
+    private Path workFileOf(int material) {
+        return workDirectory.resolve(String.format("%d-%d-%d-%s.tbl", configuration.getSize(),
+                configuration.getCriticalRegionSize(), configuration.getCriticalRegionCapacity(), describe(material)));
+    }
+
+    private byte[] loadOrSolve(int material) throws IOException {
+        var length = Tablebase.tableLength(configuration.getSize(), material);
+        if (workDirectory != null) {
+            var file = workFileOf(material);
+            if (Files.exists(file) && Files.size(file) == length) {
+                return Files.readAllBytes(file);
+            }
+        }
+        var values = solve(material);
+        if (workDirectory != null) {
+            Files.createDirectories(workDirectory);
+            // written to a temporary file first, so that an interrupted write is not taken as a finished table
+            var temporary = Files.createTempFile(workDirectory, describe(material), ".tmp");
+            Files.write(temporary, values);
+            Files.move(temporary, workFileOf(material), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        return values;
+    }
+
+    /**
+     * Solve the table of a material, whose smaller tables are already solved.
+     */
+    private byte[] solve(int material) {
+        var size = configuration.getSize();
+        var length = Tablebase.tableLength(size, material);
+        var values = new byte[length];
+        // positions reached by the moves of each unsolved position, as (material << 32 | index)
+        var children = new long[length][];
+        var players = configuration.getPlayers();
+        var games = ThreadLocal.withInitial(() -> {
+            var game = new JesonMor(configuration);
+            game.board = new Piece[size][size];
+            return game;
+        });
+        var pieces = new Piece[]{new Knight(players[0]), new Archer(players[0]), new Knight(players[1]),
+                new Archer(players[1])};
+
+        runPass(length, index -> {
+            var game = games.get();
+            if (!setUp(game, material, index, pieces)) {
+                values[index] = (byte) Tablebase.INVALID;
+                return false;
+            }
+            var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+            var player = game.getCurrentPlayerID();
+            var reached = new long[moves.length];
+            for (int i = 0; i < moves.length; i++) {
+                var source = moves[i].getSource();
+                var captured = game.getPiece(moves[i].getDestination());
+                if (game.getPiece(source) instanceof Knight && game.isCentralPlace(source.x(), source.y())
+                        || captured != null && game.getPieceIndex().getCount(1 - player) == 1) {
+                    values[index] = 1;
+                    return true;
+                }
+                var token = game.makeMove(moves[i]);
+                reached[i] = (long) Tablebase.materialOf(game) << 32 | Tablebase.indexOf(game);
+                game.unmakeMove(token);
+            }
+            // positions without available moves stay draws
+            children[index] = moves.length == 0 ? null : reached;
+            return false;
+        });
+
+        for (int distance = 2; distance <= Tablebase.MAX_DISTANCE; distance++) {
+            var pass = distance;
+            var solved = runPass(length, index -> {
+                var reached = children[index];
+                if (reached == null || values[index] != Tablebase.DRAW) {
+                    return false;
+                }
+                var allLost = true;
+                for (var child : reached) {
+                    var childMaterial = (int) (child >>> 32);
+                    var childTable = childMaterial == material ? values : tables.get(childMaterial);
+                    var value = childTable[(int) child] & 0xFF;
+                    if (Tablebase.isLoss(value) && Tablebase.distanceOf(value) == pass - 1) {
+                        values[index] = (byte) pass;
+                        children[index] = null;
+                        return true;
+                    }
+                    // positions won in this pass are not counted, their distance is pass rather than pass - 1
+                    if (!Tablebase.isWin(value) || value >= pass) {
+                        allLost = false;
+                    }
+                }
+                if (allLost) {
+                    values[index] = (byte) (Tablebase.LOSS + pass);
+                    children[index] = null;
+                    return true;
+                }
+                return false;
+            });
+            if (solved == 0) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface PositionTask {
+        /**
+         * @return whether the position is solved by the task
+         */
+        boolean run(int index);
+    }
+
+    /**
+     * Run a task on every position of a table with the threads of the generator.
+     *
+     * @return number of positions solved
+     */
+    private int runPass(int length, PositionTask task) {
+        var solved = new AtomicInteger();
+        var tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < length; start += CHUNK_SIZE) {
+            var from = start;
+            var to = Math.min(length, start + CHUNK_SIZE);
+            tasks.add(() -> {
+                var count = 0;
+                for (int index = from; index < to; index++) {
+                    if (task.run(index)) {
+                        count++;
+                    }
+                }
+                solved.addAndGet(count);
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("generation is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return solved.get();
+    }
+
+    /**
+     * Put the pieces of a position on the gameboard of a game.
+     *
+     * @return whether the index is a position, i.e. pieces are on distinct squares in ascending order within a kind
+     */
+    private boolean setUp(JesonMor game, int material, int index, Piece[] pieces) {
+        var size = configuration.getSize();
+        var numSquares = size * size;
+        // clear the previous position
+        var pieceIndex = game.getPieceIndex();
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            while (pieceIndex.getCount(player) > 0) {
+                var square = pieceIndex.getSquare(player, 0);
+                game.setPiece(square / size, square % size, null);
+            }
+        }
+        var side = index % 2;
+        var rest = index / 2;
+        for (int kind = 0; kind < Tablebase.NUM_KINDS; kind++) {
+            var previous = -1;
+            for (int i = 0; i < Tablebase.countOf(material, kind); i++) {
+                var square = rest % numSquares;
+                rest /= numSquares;
+                if (square <= previous || game.getPiece(square / size, square % size) != null) {
+                    return false;
+                }
+                game.setPiece(square / size, square % size, pieces[kind]);
+                previous = square;
+            }
+        }
+        game.numMoves = side;
+        game.currentPlayer = configuration.getPlayers()[side];
+        return true;
+    }
+
+    /**
+     * @return the solved tables of each material
+     */
+    public Map<Integer, byte[]> getTables() {
+        return tables;
+    }
+
+    /**
+     * Write the solved tables to a tablebase file.
+     *
+     * @param path the path of the tablebase
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(Tablebase.write(configuration.getSize(), configuration.getCriticalRegionSize(),
+                    configuration.getCriticalRegionCapacity(), maxPieces, tables));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: TablebaseGenerator <output> <size> [maxPieces] [threads] [workDirectory] "
+                    + "[criticalRegionSize] [criticalRegionCapacity]");
+            return;
+        }
+        var size = Integer.parseInt(args[1]);
+        var maxPieces = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        var threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        var workDirectory = args.length > 4 ? Path.of(args[4]) : null;
+        var criticalRegionSize = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        var criticalRegionCapacity = args.length > 6 ? Integer.parseInt(args[6]) : 1;
+        var generator = new TablebaseGenerator(size, criticalRegionSize, criticalRegionCapacity, threads,
+                workDirectory);
+        generator.setProgressListener((material, millis) ->
+                System.out.printf("material %s: %d ms%n", material, millis));
+        generator.generate(maxPieces);
+        generator.write(Path.of(args[0]));
+    }
+}
@@ -0,0 +1,191 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size cache of search results keyed by {@link Game#getPositionHash()}.
+ * <p>
+ * Each entry packs the depth, the bound type, the score and the best move of a searched position into one long, and
+ * the entries are kept in two primitive arrays so that the table does not allocate after construction.
+ * A position is stored in the slot selected by the low bits of its hash, and replaces the entry in the slot only if
+ * the slot is empty, holds the same position, or holds a result of a shallower or equal depth (depth-preferred).
+ * <p>
+ * The table may be shared by threads without locking: the key is stored XOR-ed with the entry, so an entry torn by a
+ * racing write does not match its key and is treated as a miss.
+ */
+public class TranspositionTable {
+    /**
+     * The score is exact.
+     */
+    public static final int EXACT = 0;
+
+    /**
+     * The score is a lower bound, i.e. the search failed high.
+     */
+    public static final int LOWER_BOUND = 1;
+
+    /**
+     * The score is an upper bound, i.e. the search failed low.
+     */
+    public static final int UPPER_BOUND = 2;
+
+    /**
+     * Square of a missing best move
+     */
+    public static final int NO_SQUARE = (1 << 10) - 1;
+
+    /**
+     * Returned by {@link TranspositionTable#probe(long)} when the position is not in the table.
+     */
+    public static final long MISS = 0;
+
+    /**
+     * Default number of entries, as a power of two
+     */
+    public static final int DEFAULT_LOG2_ENTRIES = 18;
+
+    private static final long VALID_BIT = 1L << 63;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int FROM_SHIFT = 42;
+    private static final int TO_SHIFT = 52;
+
+    private final long[] keys;
+
+    private final long[] entries;
+
+    private final int mask;
+
+    private final LongAdder probes = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder collisions = new LongAdder();
+
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * @param log2Entries the number of entries as a power of two, e.g. 18 for 2^18 entries
+     */
+    public TranspositionTable(int log2Entries) {
+        if (log2Entries < 1 || log2Entries > 30) {
+            throw new IllegalArgumentException("log2Entries should be between 1 and 30");
+        }
+        this.keys = new long[1 << log2Entries];
+        this.entries = new long[1 << log2Entries];
+        this.mask = (1 << log2Entries) - 1;
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_LOG2_ENTRIES);
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param key hash of the position
+     * @return the packed entry, or {@link TranspositionTable#MISS} if the position is not in the table
+     */
+    public long probe(long key) {
+        probes.increment();
+        var slot = (int) key & mask;
+        var entry = entries[slot];
+        if (entry == MISS) {
+            return MISS;
+        }
+        if ((keys[slot] ^ entry) != key) {
+            collisions.increment();
+            return MISS;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Store the result of searching a position.
+     *
+     * @param key   hash of the position
+     * @param depth depth searched, from 0 to 255
+     * @param bound one of {@link TranspositionTable#EXACT}, {@link TranspositionTable#LOWER_BOUND} and
+     *              {@link TranspositionTable#UPPER_BOUND}
+     * @param score score of the position
+     * @param from  source square of the best move, or {@link TranspositionTable#NO_SQUARE}
+     * @param to    destination square of the best move, or {@link TranspositionTable#NO_SQUARE}
+     */
+    public void store(long key, int depth, int bound, int score, int from, int to) {
+        var slot = (int) key & mask;
+        var existing = entries[slot];
+        if (existing != MISS && (keys[slot] ^ existing) != key && depthOf(existing) > depth) {
+            // keep the deeper result of another position
+            return;
+        }
+        var entry = VALID_BIT
+                | (score & 0xFFFFFFFFL)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) (bound & 0x3) << BOUND_SHIFT)
+                | ((long) (from & NO_SQUARE) << FROM_SHIFT)
+                | ((long) (to & NO_SQUARE) << TO_SHIFT);
+        entries[slot] = entry;
+        keys[slot] = key ^ entry;
+        stores.increment();
+    }
+
+    public static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    public static int depthOf(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int boundOf(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int fromOf(long entry) {
+        return (int) (entry >>> FROM_SHIFT) & NO_SQUARE;
+    }
+
+    public static int toOf(long entry) {
+        return (int) (entry >>> TO_SHIFT) & NO_SQUARE;
+    }
+
+    /**
+     * Remove all entries and reset the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, MISS);
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+        stores.reset();
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return number of probes that found the position
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of probes that found another position in the slot
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+}
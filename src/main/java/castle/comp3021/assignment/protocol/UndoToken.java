@@ -0,0 +1,49 @@
+package castle.comp3021.assignment.protocol;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The state needed to take back a move made by {@link Game#makeMove(Move)}, passed to {@link Game#unmakeMove(UndoToken)}.
+ */
+public final class UndoToken {
+    final Move move;
+    final Piece movedPiece;
+    final Piece capturedPiece;
+    final Player mover;
+    final int previousScore;
+    final int previousNumMoves;
+    final Player previousCurrentPlayer;
+
+    UndoToken(Move move, Piece movedPiece, Piece capturedPiece, Player mover, int previousScore,
+              int previousNumMoves, Player previousCurrentPlayer) {
+        this.move = move;
+        this.movedPiece = movedPiece;
+        this.capturedPiece = capturedPiece;
+        this.mover = mover;
+        this.previousScore = previousScore;
+        this.previousNumMoves = previousNumMoves;
+        this.previousCurrentPlayer = previousCurrentPlayer;
+    }
+
+    public Move getMove() {
+        return move;
+    }
+
+    public Piece getMovedPiece() {
+        return movedPiece;
+    }
+
+    /**
+     * @return the piece captured by the move, or null if the move captures nothing
+     */
+    public @Nullable Piece getCapturedPiece() {
+        return capturedPiece;
+    }
+
+    /**
+     * @return the player who made the move
+     */
+    public Player getMover() {
+        return mover;
+    }
+}
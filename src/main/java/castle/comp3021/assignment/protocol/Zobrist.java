@@ -0,0 +1,110 @@
+package castle.comp3021.assignment.protocol;
+
+/**
+ * Zobrist keys of positions.
+ * <p>
+ * A position is hashed by XOR-ing a random 64-bit key for every (player, piece type, square) occupied on the gameboard,
+ * a key when the second player is to move, and a key for the number of moves left in the protection window (see
+ * {@link Configuration#getNumMovesProtection()}). Since XOR is its own inverse, the hash is updated incrementally when
+ * a piece is put or removed, see {@link Game#setPiece(int, int, Piece)}.
+ * <p>
+ * Keys are fixed for all games, so hashes of the same position in different games are equal.
+ */
+public final class Zobrist {
+    /**
+     * Number of squares with precomputed keys, which covers boards up to 26x26.
+     */
+    private static final int CACHED_SQUARES = 26 * 26;
+
+    private static final long SEED = 0x3021_5EED_2020_C0DEL;
+
+    private static final long[][][] PIECE_KEYS =
+            new long[BitBoard.NUM_PLAYERS][BitBoard.NUM_TYPES][CACHED_SQUARES];
+
+    /**
+     * Key of the second player being the player to move.
+     */
+    public static final long SIDE_TO_MOVE_KEY = mix(SEED - 1);
+
+    static {
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            for (int type = 0; type < BitBoard.NUM_TYPES; type++) {
+                for (int square = 0; square < CACHED_SQUARES; square++) {
+                    PIECE_KEYS[player][type][square] = computePieceKey(player, type, square);
+                }
+            }
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * SplitMix64 finalizer, which turns consecutive numbers into well distributed keys.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long computePieceKey(int player, int type, int square) {
+        return mix(SEED + (((long) square * BitBoard.NUM_TYPES + type) * BitBoard.NUM_PLAYERS + player) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * @param player index of player
+     * @param type   type of piece, see {@link BitBoard#typeOf(Piece)}
+     * @param square the square of the piece
+     * @return the key of the piece on the square
+     */
+    public static long pieceKey(int player, int type, int square) {
+        if (square < CACHED_SQUARES) {
+            return PIECE_KEYS[player][type][square];
+        }
+        return computePieceKey(player, type, square);
+    }
+
+    /**
+     * @param movesLeft number of moves left in the protection window
+     * @return the key of the protection window, which is 0 when the window has passed
+     */
+    public static long protectionKey(int movesLeft) {
+        return movesLeft <= 0 ? 0 : mix(~SEED + movesLeft);
+    }
+
+    /**
+     * Compute the key of the game state other than pieces, i.e. the player to move and the protection window.
+     *
+     * @param game the game
+     * @return the key
+     */
+    public static long stateKey(Game game) {
+        var key = protectionKey(game.getConfiguration().getNumMovesProtection() - game.getNumMoves());
+        if (game.getCurrentPlayerID() != 0) {
+            key ^= SIDE_TO_MOVE_KEY;
+        }
+        return key;
+    }
+
+    /**
+     * Compute the hash of a position from scratch by scanning the gameboard.
+     *
+     * @param game the game
+     * @return the hash, which equals {@link Game#getPositionHash()}
+     */
+    public static long computeHash(Game game) {
+        var board = game.getBoard();
+        var size = game.getConfiguration().getSize();
+        var hash = stateKey(game);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var piece = board[x][y];
+                if (piece != null) {
+                    hash ^= pieceKey(game.getPlayerIndex(piece.getPlayer()), BitBoard.typeOf(piece), x * size + y);
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -10,6 +10,10 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class JesonMor extends Game {
@@ -30,22 +34,12 @@ public class JesonMor extends Game {
     }
 
     private static class GameHistory{
-        public Piece[][] savedBoard;
         public int savedNumMoves;
         public Player savedPlayer;
         public HashMap<Player, Integer> playerScores = new HashMap<>();
-        public List<MoveRecord> savedMoveRecords = new ArrayList<>();
+        public int savedNumMoveRecords;
 
         public GameHistory(JesonMor jesonMor) {
-            //board shallow copy
-            int boardSize = jesonMor.board.length;
-            this.savedBoard = new Piece[boardSize][boardSize];
-            for (int i=0; i < boardSize; i++){
-                for (int j=0; j < boardSize; j++){
-                    this.savedBoard[i][j] = jesonMor.board[i][j];
-                }
-            }
-
             //copy numMove
             this.savedNumMoves = jesonMor.numMoves;
 
@@ -57,8 +51,8 @@ public class JesonMor extends Game {
                 this.playerScores.put(player, player.getScore());
             }
 
-            //copy move records
-            this.savedMoveRecords.addAll(jesonMor.moveRecords);
+            //the board is restored by reverting the moves recorded after this point
+            this.savedNumMoveRecords = jesonMor.moveRecords.size();
         }
 
     }
@@ -75,8 +69,19 @@ public class JesonMor extends Game {
 
     private List<MoveRecord> moveRecords = new ArrayList<>();
 
+    /**
+     * The piece captured by each move in {@link this#moveRecords}, or null if the move captures nothing.
+     * It is used to revert moves when undoing.
+     */
+    private List<Piece> capturedPieces = new ArrayList<>();
+
     private LimitedStack<GameHistory> gameHistories = new LimitedStack<>(Game.undoLimit);
 
+    /**
+     * Candidate moves of computer pieces that missed the deadline of their turns
+     */
+    private final MissedProposalCounter missedProposals = new MissedProposalCounter();
+
     /**
      * Start the game
      * Players will take turns according to the order in {@link Configuration#getPlayers()} to make a move until
@@ -90,6 +95,8 @@ public class JesonMor extends Game {
         Player winner;
         this.numMoves = 0;
         this.board = configuration.getInitialBoard();
+        this.rebuildBoardState();
+        this.clearTranspositionTable();
         this.currentPlayer = null;
         this.refreshOutput();
 
@@ -135,11 +142,14 @@ public class JesonMor extends Game {
                 System.out.println("Congratulations! ");
                 System.out.printf("Winner: %s%s%s\n", player.getColor(), player.getName(), Color.DEFAULT);
                 this.winner = winner;
-                // stop all threads
-                for (var entry :
-                        this.configuration.getPieceThreadMap().entrySet()) {
-                    entry.getKey().terminate();
-                    entry.getValue().interrupt();
+                // stop all piece workers
+                for (var worker : this.configuration.getPieceWorkerMap().values()) {
+                    worker.stop();
+                }
+                for (var gamePlayer : this.configuration.getPlayers()) {
+                    if (gamePlayer instanceof ComputerPlayer) {
+                        ((ComputerPlayer) gamePlayer).stopPondering();
+                    }
                 }
                 return winner;
             }
@@ -169,24 +179,20 @@ public class JesonMor extends Game {
             winner = lastPlayer;
         } else {
             // second way to win: one player captures all the pieces of other players
-            Player remainingPlayer = null;
-            for (int i = 0; i < this.configuration.getSize(); i++) {
-                for (int j = 0; j < this.configuration.getSize(); j++) {
-                    var piece = this.getPiece(i, j);
-                    if (piece == null) {
-                        continue;
-                    }
-                    if (remainingPlayer == null) {
-                        remainingPlayer = piece.getPlayer();
-                    } else if (remainingPlayer != piece.getPlayer()) {
-                        // there are still two players having pieces on board
-                        return null;
-                    }
-                }
+            var pieceIndex = this.getPieceIndex();
+            if (pieceIndex.getCount(0) > 0 && pieceIndex.getCount(1) > 0) {
+                // there are still two players having pieces on board
+                return null;
             }
-            // if the previous for loop terminates, then there must be 1 player on board (it cannot be null).
-            // then winner appears
-            winner = remainingPlayer;
+            // otherwise there is at most 1 player on board, then winner appears
+            var remainingPlayer = pieceIndex.getCount(0) > 0 ? 0 : 1;
+            if (pieceIndex.getCount(remainingPlayer) == 0) {
+                return null;
+            }
+            var square = pieceIndex.getSquare(remainingPlayer, 0);
+            var size = this.configuration.getSize();
+            var remainingPiece = this.getPiece(square / size, square % size);
+            winner = remainingPiece == null ? null : remainingPiece.getPlayer();
         }
 
         return winner;
@@ -222,10 +228,11 @@ public class JesonMor extends Game {
                 : "cannot capture a piece belonging to the same player";
 
         // move the piece
-        this.board[move.getDestination().x()][move.getDestination().y()] = sourcePiece;
-        this.board[move.getSource().x()][move.getSource().y()] = null;
+        this.setPiece(move.getDestination().x(), move.getDestination().y(), sourcePiece);
+        this.setPiece(move.getSource().x(), move.getSource().y(), null);
 
         moveRecords.add(new MoveRecord(getCurrentPlayer(), move));
+        capturedPieces.add(destPiece);
     }
 
     /**
@@ -238,6 +245,8 @@ public class JesonMor extends Game {
      *          return an array containing candidate moves proposed by each piece thread of computer player.
      *          Paused/terminated pieces will not propose candidate moves.
      *          The number of moves in the array should be the same as the number of non-paused/non-terminated pieces.
+     *          Candidate moves are waited for until the turn budget ({@link Configuration#getTurnBudgetMillis()}) runs
+     *          out; moves proposed later are left out and counted in {@link JesonMor#getMissedProposals()}.
      *
      * @param player the player whose available moves to get
      * @return an array of available moves
@@ -245,48 +254,70 @@ public class JesonMor extends Game {
     public @NotNull Move[] getAvailableMoves(Player player) {
         //TODO
         //get all necessary info about player's pieces
-        HashMap<Place, Piece> pieceMap = new HashMap<>();
-        int boardSize = this.getConfiguration().getSize();
-        for (int i=0; i<boardSize; i++){
-            for (int j=0; j<boardSize; j++){
-                Place currentPlace = new Place(i,j);
-                Piece currentPiece = this.getPiece(currentPlace);
-                if (currentPiece == null){
-                    continue;
-                }
-                if (!currentPiece.getPlayer().equals(player)){
-                    continue;
-                }
-                pieceMap.put(currentPlace, currentPiece);
-            }
+        var pieceIndex = this.getPieceIndex();
+        var playerIndex = this.getPlayerIndex(player);
+        var size = this.configuration.getSize();
+        var numPieces = pieceIndex.getCount(playerIndex);
+        var places = new Place[numPieces];
+        var pieces = new Piece[numPieces];
+        for (int i = 0; i < numPieces; i++) {
+            var square = pieceIndex.getSquare(playerIndex, i);
+            places[i] = Place.of(square / size, square % size);
+            pieces[i] = this.getPiece(places[i]);
         }
         //print sentence if it is computer Player
         if (player instanceof  ComputerPlayer){
             System.out.println("Computer is figuring out next move...");
         }
         //get the available moves by getting the move of each piece
-        Move[] results = pieceMap
-                .entrySet()
-                .parallelStream()
-                .flatMap(placePieceEntry -> {
-                    Place tempPlace = placePieceEntry.getKey();
-                    Piece tempPiece = placePieceEntry.getValue();
-                    if (player instanceof HumanPlayer){
-                        return Arrays.stream(tempPiece.getAvailableMoves(this, tempPlace));
-                    }else{
-                        Move candidateMove = tempPiece.getCandidateMove(this, tempPlace);
-                        Move[] availMove = {candidateMove};
-                        if (candidateMove != null){
-                            return Arrays.stream(availMove);
-                        }
-                    }
-                    Move[] availMove = {};
-                    return Arrays.stream(availMove);
-                })
-                .collect(Collectors.toList())
-                .toArray(Move[]::new);
+        var results = new ArrayList<Move>();
+        if (player instanceof HumanPlayer){
+            for (int i = 0; i < numPieces; i++) {
+                if (pieces[i] != null && pieces[i].getPlayer().equals(player)) {
+                    results.addAll(Arrays.asList(pieces[i].getAvailableMoves(this, places[i])));
+                }
+            }
+            return results.toArray(Move[]::new);
+        }
+        //request candidate moves of all pieces at once, and wait for them until the deadline of the turn.
+        //pieces read a snapshot of the position, since late proposals may still be running when this game moves on
+        var position = this.copyPosition();
+        var candidatePieces = new ArrayList<Piece>();
+        var candidates = new ArrayList<CompletableFuture<Move>>();
+        for (int i = 0; i < numPieces; i++) {
+            if (pieces[i] != null && pieces[i].getPlayer().equals(player)) {
+                candidatePieces.add(pieces[i]);
+                candidates.add(pieces[i].requestCandidateMove(position, places[i]));
+            }
+        }
+        var deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(this.configuration.getTurnBudgetMillis());
+        for (int i = 0; i < candidates.size(); i++) {
+            var candidate = candidates.get(i);
+            try {
+                var candidateMove = candidate.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (candidateMove != null) {
+                    results.add(candidateMove);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                candidate.cancel(false);
+            } catch (ExecutionException e) {
+                //no candidate move is proposed for this piece this round
+            } catch (TimeoutException e) {
+                //the late proposal is discarded when it arrives, see Piece#requestCandidateMove
+                candidate.cancel(false);
+                this.missedProposals.record(candidatePieces.get(i));
+            }
+        }
+        return results.toArray(Move[]::new);
+    }
 
-        return results;
+    /**
+     * @return numbers of candidate moves of computer pieces that missed the deadline of their turns
+     */
+    public MissedProposalCounter getMissedProposals() {
+        return missedProposals;
     }
 
     /**
@@ -333,9 +364,16 @@ public class JesonMor extends Game {
 
         //retrieve saved state
         GameHistory previousState = this.gameHistories.pop();
-        this.board = previousState.savedBoard;
+        //revert the moves made after the state was saved, latest first
+        while (this.moveRecords.size() > previousState.savedNumMoveRecords) {
+            var lastIndex = this.moveRecords.size() - 1;
+            var move = this.moveRecords.remove(lastIndex).getMove();
+            var capturedPiece = this.capturedPieces.remove(lastIndex);
+            var movedPiece = this.getPiece(move.getDestination());
+            this.setPiece(move.getSource().x(), move.getSource().y(), movedPiece);
+            this.setPiece(move.getDestination().x(), move.getDestination().y(), capturedPiece);
+        }
         this.numMoves = previousState.savedNumMoves;
-        this.moveRecords = previousState.savedMoveRecords;
         this.currentPlayer = previousState.savedPlayer;
         for (Player player : players) {
             player.setScore(previousState.playerScores.get(player));
@@ -396,6 +434,7 @@ public class JesonMor extends Game {
             }
             return null;
         }).collect(Collectors.toList());
+        cloned.capturedPieces = new ArrayList<>(this.capturedPieces);
         return cloned;
     }
 }
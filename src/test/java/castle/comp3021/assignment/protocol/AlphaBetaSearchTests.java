@@ -0,0 +1,116 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlphaBetaSearchTests {
+    private final Player player1 = new MockPlayer(Color.PURPLE);
+    private final Player player2 = new MockPlayer(Color.YELLOW);
+
+    @Test
+    public void testLeaveCentralPlaceToWin() {
+        var game = TestGames.createEmptyGame(5, player1, player2);
+        game.board[2][2] = new Knight(player1);
+        game.board[0][0] = new Archer(player1);
+        game.board[4][4] = new Knight(player2);
+        game.board[4][0] = new Archer(player2);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var move = new AlphaBetaSearch(game, 1000).search(moves);
+        assertEquals(new Place(2, 2), move.getSource());
+    }
+
+    @Test
+    public void testCaptureLastPieceToWin() {
+        var game = TestGames.createEmptyGame(5, player1, player2);
+        game.board[0][0] = new Knight(player1);
+        game.board[1][2] = new Knight(player2);
+        var move = new AlphaBetaSearch(game, 1000).search(Perft.generateMoves(game, Perft.PIECE_MOVES));
+        assertEquals(new Move(0, 0, 1, 2), move);
+    }
+
+    @Test
+    public void testSearchStrategyLeavesGameAlone() throws InterruptedException {
+        var config = new Configuration(9, new Player[]{player1, player2}, 1);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        game.numMoves = 4;
+        game.currentPlayer = player1;
+        var hash = game.getPositionHash();
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var chosen = new Move[1];
+        var thread = new Thread(() -> chosen[0] = new MakeMoveByStrategy(game, moves, Strategy.SEARCH, 300, 1)
+                .getNextMove());
+        thread.start();
+        // the position of the game does not change while it is searched
+        while (thread.isAlive()) {
+            assertEquals(hash, game.getPositionHash());
+            Thread.sleep(1);
+        }
+        thread.join();
+        assertTrue(java.util.Arrays.asList(moves).contains(chosen[0]));
+        // the copy searched shares the table of the game
+        game.makeMove(chosen[0]);
+        assertNotEquals(TranspositionTable.MISS, game.getTranspositionTable().probe(game.getPositionHash()));
+    }
+
+    @Test
+    public void testSearchRestoresGame() {
+        var config = new Configuration(9, new Player[]{player1, player2}, 1);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        game.numMoves = 4;
+        game.currentPlayer = player1;
+        var hash = game.getPositionHash();
+        var board = new Piece[9][];
+        for (int x = 0; x < 9; x++) {
+            board[x] = game.board[x].clone();
+        }
+        var search = new AlphaBetaSearch(game, 300);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var move = search.search(moves);
+        assertTrue(java.util.Arrays.asList(moves).contains(move));
+        assertTrue(search.getCompletedDepth() >= 2, "depth " + search.getCompletedDepth());
+        assertEquals(hash, game.getPositionHash());
+        assertEquals(4, game.getNumMoves());
+        assertArrayEquals(board, game.board);
+        assertEquals(0, player1.getScore());
+    }
+
+    @Test
+    public void testParallelSearchFindsWin() {
+        var game = TestGames.createEmptyGame(7, player1, player2);
+        game.board[3][3] = new Knight(player1);
+        game.board[0][0] = new Archer(player1);
+        game.board[6][6] = new Knight(player2);
+        game.board[6][0] = new Archer(player2);
+        game.board[0][6] = new Knight(player2);
+        var hash = game.getPositionHash();
+        var search = new AlphaBetaSearch(game, 1000, new TranspositionTable(12));
+        search.setParallelism(4);
+        var move = search.search(Perft.generateMoves(game, Perft.PIECE_MOVES));
+        assertEquals(new Place(3, 3), move.getSource());
+        assertEquals(hash, game.getPositionHash());
+    }
+
+    @Test
+    public void testParallelSearchRestoresGame() {
+        var config = new Configuration(9, new Player[]{player1, player2}, 1);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        game.currentPlayer = player1;
+        var hash = game.getPositionHash();
+        var search = new AlphaBetaSearch(game, 200, new TranspositionTable(16));
+        search.setParallelism(3);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        assertTrue(java.util.Arrays.asList(moves).contains(search.search(moves)));
+        assertTrue(search.getCompletedDepth() >= 1);
+        assertEquals(hash, game.getPositionHash());
+        assertEquals(0, player1.getScore());
+        assertEquals(0, game.getNumMoves());
+    }
+}
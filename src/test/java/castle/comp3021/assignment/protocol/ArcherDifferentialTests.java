@@ -0,0 +1,87 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.*;
+import castle.comp3021.assignment.textversion.JesonMor;
+import castle.comp3021.assignment.util.Compares;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Differential tests of {@link Archer#getAvailableMoves(Game, Place)} against filtering every square on the rank and
+ * file of the archer through the rules.
+ */
+public class ArcherDifferentialTests {
+    private static Move[] getMovesByRules(Game game, Place source) {
+        var rules = new Rule[]{
+                new OutOfBoundaryRule(),
+                new OccupiedRule(),
+                new VacantRule(),
+                new NilMoveRule(),
+                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
+                new ArcherMoveRule(),
+                new CriticalRegionRule(),
+        };
+        var moves = new ArrayList<Move>();
+        var size = game.getConfiguration().getSize();
+        for (int i = 0; i < size; i++) {
+            moves.add(new Move(source, i, source.y()));
+            moves.add(new Move(source, source.x(), i));
+        }
+        return moves.stream()
+                .filter(move -> {
+                    for (var rule : rules) {
+                        if (!rule.validate(game, move)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                })
+                .toArray(Move[]::new);
+    }
+
+    private static Piece randomPiece(Random random, Player player) {
+        return switch (random.nextInt(3)) {
+            case 0 -> new Knight(player);
+            case 1 -> new Archer(player);
+            default -> new MockPiece(player);
+        };
+    }
+
+    @Test
+    public void testRandomPositions() {
+        var random = new Random(3021);
+        for (int round = 0; round < 300; round++) {
+            var size = 3 + 2 * random.nextInt(12);
+            var players = new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+            var config = new Configuration(size, players, random.nextInt(3));
+            var game = new JesonMor(config);
+            var density = random.nextDouble();
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (random.nextDouble() < density) {
+                        game.board[x][y] = randomPiece(random, players[random.nextInt(2)]);
+                    }
+                }
+            }
+            game.numMoves = random.nextInt(4);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (!(game.board[x][y] instanceof Archer)) {
+                        continue;
+                    }
+                    var source = new Place(x, y);
+                    var expected = getMovesByRules(game, source);
+                    var actual = game.board[x][y].getAvailableMoves(game, source);
+                    assertTrue(Compares.areContentsEqual(expected, actual),
+                            "archer at " + source + " on board of size " + size);
+                }
+            }
+        }
+    }
+}
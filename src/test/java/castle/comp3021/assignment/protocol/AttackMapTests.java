@@ -0,0 +1,136 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttackMapTests {
+    private final Player player1 = new MockPlayer(Color.PURPLE);
+    private final Player player2 = new MockPlayer(Color.YELLOW);
+
+    /**
+     * Count the attackers of a square from the rules of capturing: a knight move whose blocking square is empty, or a
+     * move of an archer along a line with exactly one piece in between.
+     */
+    private static int countAttackers(Game game, int player, int x, int y) {
+        var size = game.getConfiguration().getSize();
+        var count = 0;
+        for (int fromX = 0; fromX < size; fromX++) {
+            for (int fromY = 0; fromY < size; fromY++) {
+                var piece = game.getPiece(fromX, fromY);
+                if (piece == null || game.getPlayerIndex(piece.getPlayer()) != player
+                        || fromX == x && fromY == y) {
+                    continue;
+                }
+                var dx = x - fromX;
+                var dy = y - fromY;
+                if (piece instanceof Knight) {
+                    if (Math.abs(dx) == 2 && Math.abs(dy) == 1 && game.getPiece(fromX + dx / 2, fromY) == null
+                            || Math.abs(dx) == 1 && Math.abs(dy) == 2 && game.getPiece(fromX, fromY + dy / 2) == null) {
+                        count++;
+                    }
+                } else if (piece instanceof Archer && (dx == 0 || dy == 0)) {
+                    var between = 0;
+                    for (int i = 1; i < Math.abs(dx + dy); i++) {
+                        if (game.getPiece(fromX + i * Integer.signum(dx), fromY + i * Integer.signum(dy)) != null) {
+                            between++;
+                        }
+                    }
+                    if (between == 1) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void assertMatchesRules(Game game) {
+        var size = game.getConfiguration().getSize();
+        var attackMap = game.getAttackMap();
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    assertEquals(countAttackers(game, player, x, y), attackMap.countAttackers(player, x * size + y),
+                            "player " + player + " at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchRules() {
+        var random = new Random(3021);
+        for (int round = 0; round < 20; round++) {
+            var game = TestGames.createEmptyGame(9, player1, player2);
+            for (int i = 0; i < 16; i++) {
+                var x = random.nextInt(9);
+                var y = random.nextInt(9);
+                var player = i % 2 == 0 ? player1 : player2;
+                if (game.board[x][y] == null && !(x == 4 && y == 4)) {
+                    game.board[x][y] = i % 4 < 2 ? new Knight(player) : new Archer(player);
+                }
+            }
+            assertMatchesRules(game);
+            var tokens = new ArrayList<UndoToken>();
+            for (int ply = 0; ply < 30; ply++) {
+                var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+                if (moves.length == 0) {
+                    break;
+                }
+                tokens.add(game.makeMove(moves[random.nextInt(moves.length)]));
+                assertMatchesRules(game);
+            }
+            for (int i = tokens.size() - 1; i >= 0; i--) {
+                game.unmakeMove(tokens.get(i));
+            }
+            assertMatchesRules(game);
+        }
+    }
+
+    @Test
+    public void testHangingPieces() {
+        var game = TestGames.createEmptyGame(7, player1, player2);
+        game.board[0][0] = new Archer(player1);
+        game.board[0][2] = new Knight(player2);
+        game.board[0][5] = new Knight(player2);
+        game.board[2][1] = new Knight(player1);
+        var attackMap = game.getAttackMap();
+        var bitBoard = game.getBitBoard();
+        // the archer captures (0, 5) over the screen (0, 2), and the knight at (2, 1) captures (0, 2)
+        assertTrue(attackMap.isHanging(bitBoard, bitBoard.index(0, 5)));
+        assertTrue(attackMap.isHanging(bitBoard, bitBoard.index(0, 2)));
+        assertFalse(attackMap.isHanging(bitBoard, bitBoard.index(0, 0)));
+        assertFalse(attackMap.isHanging(bitBoard, bitBoard.index(3, 3)));
+
+        // a knight of player 2 defends (0, 5)
+        game.setPiece(1, 3, new Knight(player2));
+        assertFalse(attackMap.isHanging(bitBoard, bitBoard.index(0, 5)));
+        assertEquals(1, attackMap.countAttackers(0, bitBoard.index(0, 2)));
+        // a piece on (1, 1) blocks the knight at (2, 1)
+        game.setPiece(1, 1, new Knight(player2));
+        assertEquals(0, attackMap.countAttackers(0, bitBoard.index(0, 2)));
+    }
+
+    @Test
+    public void testSafeCapturing() {
+        var game = TestGames.createEmptyGame(7, player1, player2);
+        var knight = new Knight(player1);
+        game.board[3][1] = knight;
+        game.board[1][0] = new Archer(player2);
+        game.board[5][0] = new Archer(player2);
+        game.board[0][2] = new Knight(player2);
+        var moves = knight.getAvailableMoves(game, new Place(3, 1));
+        // the knight at (0, 2) defends (1, 0), while (5, 0) is only the screen of the archer at (1, 0) after capturing
+        for (int i = 0; i < 20; i++) {
+            assertEquals(new Move(3, 1, 5, 0),
+                    new MakeMoveByBehavior(game, moves, Behavior.SAFE_CAPTURING).getNextMove());
+        }
+    }
+}
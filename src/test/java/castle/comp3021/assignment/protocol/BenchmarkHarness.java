@@ -0,0 +1,122 @@
+package castle.comp3021.assignment.protocol;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+/**
+ * A minimal benchmark harness in the spirit of JMH: each benchmark is warmed up, then timed over several measurement
+ * iterations, and the results are reported as JSON so that they can be compared between releases.
+ * <p>
+ * A benchmark is an {@link IntSupplier} running one batch of operations. The results of batches are accumulated into
+ * a sink so that the JIT compiler cannot eliminate the measured code.
+ */
+public class BenchmarkHarness {
+    /**
+     * The result of one benchmark.
+     */
+    public static class Result {
+        public final String name;
+        public final int size;
+        public final int opsPerBatch;
+        public final int iterations;
+        public final double nsPerOp;
+        public final double minNsPerOp;
+
+        Result(String name, int size, int opsPerBatch, int iterations, double nsPerOp, double minNsPerOp) {
+            this.name = name;
+            this.size = size;
+            this.opsPerBatch = opsPerBatch;
+            this.iterations = iterations;
+            this.nsPerOp = nsPerOp;
+            this.minNsPerOp = minNsPerOp;
+        }
+
+        public String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"benchmark\":\"%s\",\"size\":%d,\"opsPerBatch\":%d,\"iterations\":%d,\"nsPerOp\":%.1f,\"minNsPerOp\":%.1f}",
+                    name, size, opsPerBatch, iterations, nsPerOp, minNsPerOp);
+        }
+    }
+
+    /**
+     * A stream discarding everything, used to measure code that prints to the console.
+     */
+    public static final PrintStream NULL_OUTPUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private final long warmUpNanos;
+
+    private final long measureNanos;
+
+    private final List<Result> results = new ArrayList<>();
+
+    private long sink;
+
+    /**
+     * @param warmUpMillis  time of warming up each benchmark
+     * @param measureMillis time of measuring each benchmark
+     */
+    public BenchmarkHarness(long warmUpMillis, long measureMillis) {
+        this.warmUpNanos = warmUpMillis * 1_000_000;
+        this.measureNanos = measureMillis * 1_000_000;
+    }
+
+    /**
+     * Run a benchmark and record its result.
+     *
+     * @param name        name of the benchmark
+     * @param size        size of gameboard of the position
+     * @param opsPerBatch number of operations in one batch, used to report time per operation
+     * @param batch       runs one batch and returns any value depending on its work
+     * @return the result
+     */
+    public Result run(String name, int size, int opsPerBatch, IntSupplier batch) {
+        var deadline = System.nanoTime() + warmUpNanos;
+        do {
+            sink += batch.getAsInt();
+        } while (System.nanoTime() < deadline);
+
+        var iterations = 0;
+        var totalNanos = 0L;
+        var minNanos = Long.MAX_VALUE;
+        deadline = System.nanoTime() + measureNanos;
+        do {
+            var start = System.nanoTime();
+            sink += batch.getAsInt();
+            var elapsed = System.nanoTime() - start;
+            totalNanos += elapsed;
+            minNanos = Math.min(minNanos, elapsed);
+            iterations++;
+        } while (System.nanoTime() < deadline);
+
+        var ops = Math.max(1, opsPerBatch);
+        var result = new Result(name, size, opsPerBatch, iterations,
+                (double) totalNanos / iterations / ops, (double) minNanos / ops);
+        results.add(result);
+        return result;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the results as a JSON array, one benchmark per line
+     */
+    public String toJson() {
+        var builder = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            builder.append("  ").append(results.get(i).toJson());
+            builder.append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        builder.append("]");
+        // keep the sink alive
+        if (sink == 42) {
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,259 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.*;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.player.ConsolePlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks of move generation, rules, strategies, behaviors, evaluation and console output on fixed positions.
+ * <p>
+ * Positions are generated from a fixed seed for each board size in {@link BenchmarkSuite#SIZES}, so results of
+ * different releases are comparable.
+ * <p>
+ * Usage: {@code java castle.comp3021.assignment.protocol.BenchmarkSuite [output.json] [warmUpMillis] [measureMillis]}
+ * <br>
+ * Results are printed to the console as JSON, and also written to the output file if given.
+ */
+public class BenchmarkSuite {
+    public static final int[] SIZES = {5, 9, 15, 25};
+
+    private static final long SEED = 3021;
+
+    /**
+     * Create a game on a fixed position, where each player has size pieces (knights and archers alternatively) placed
+     * randomly. Captures are allowed from the first move.
+     *
+     * @param size    size of gameboard
+     * @param players the two players
+     * @return the game
+     */
+    public static JesonMor createPosition(int size, Player[] players) {
+        var random = new Random(SEED + size);
+        var configuration = new Configuration(size, players, 0, Math.max(1, size / 3) | 1, Math.max(1, size / 4));
+        var center = configuration.getCentralPlace();
+        for (var player : players) {
+            for (int i = 0; i < size; i++) {
+                int x;
+                int y;
+                do {
+                    x = random.nextInt(size);
+                    y = random.nextInt(size);
+                } while (configuration.getInitialBoard()[x][y] != null || (x == center.x() && y == center.y()));
+                configuration.addInitialPiece(i % 2 == 0 ? new Knight(player) : new Archer(player), x, y);
+            }
+        }
+        var game = new JesonMor(configuration);
+        game.currentPlayer = players[0];
+        return game;
+    }
+
+    private static List<Place> placesOf(Game game, Player player, Class<? extends Piece> type) {
+        var places = new ArrayList<Place>();
+        var size = game.getConfiguration().getSize();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var piece = game.getPiece(x, y);
+                if (type.isInstance(piece) && piece.getPlayer().equals(player)) {
+                    places.add(Place.of(x, y));
+                }
+            }
+        }
+        return places;
+    }
+
+    private static void stopThreads(Game game) {
+        for (var worker : game.getConfiguration().getPieceWorkerMap().values()) {
+            worker.stop();
+        }
+    }
+
+    private static void benchmarkPieces(BenchmarkHarness harness, JesonMor game, Player player) {
+        var size = game.getConfiguration().getSize();
+        for (var type : List.of(Knight.class, Archer.class)) {
+            var places = placesOf(game, player, type);
+            harness.run(type.getSimpleName() + ".getAvailableMoves", size, places.size(), () -> {
+                var count = 0;
+                for (var place : places) {
+                    count += game.getPiece(place).getAvailableMoves(game, place).length;
+                }
+                return count;
+            });
+        }
+    }
+
+    private static void benchmarkRules(BenchmarkHarness harness, JesonMor game, Player player) {
+        var size = game.getConfiguration().getSize();
+        var moves = new ArrayList<Move>();
+        for (var source : placesOf(game, player, Piece.class)) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    moves.add(Move.of(source, x, y));
+                }
+            }
+        }
+        var rules = new Rule[]{
+                new OutOfBoundaryRule(),
+                new OccupiedRule(),
+                new VacantRule(),
+                new NilMoveRule(),
+                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
+                new ArcherMoveRule(),
+                new KnightMoveRule(),
+                new KnightBlockRule(),
+                new CriticalRegionRule(),
+        };
+        for (var rule : rules) {
+            harness.run(rule.getClass().getSimpleName() + ".validate", size, moves.size(), () -> {
+                var count = 0;
+                for (var move : moves) {
+                    if (rule.validate(game, move)) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+        }
+        var pipeline = game.getConfiguration().getRulePipeline();
+        var context = new MoveContext(game);
+        harness.run("RulePipeline.isValid", size, moves.size(), () -> {
+            var count = 0;
+            for (var move : moves) {
+                if (pipeline.isValid(context.reset(move))) {
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    private static void benchmarkDecisions(BenchmarkHarness harness, JesonMor game, Player player) {
+        var size = game.getConfiguration().getSize();
+        var moves = game.getAvailableMoves(player);
+        for (var strategy : new Strategy[]{Strategy.RANDOM, Strategy.SMART}) {
+            harness.run("MakeMoveByStrategy." + strategy, size, 1,
+                    () -> new MakeMoveByStrategy(game, moves, strategy).getNextMove().hashCode());
+        }
+        // the search runs until its time budget, so it is measured to a fixed depth instead
+        for (int depth = 1; depth <= 2; depth++) {
+            var search = new AlphaBetaSearch(game, Long.MAX_VALUE / 2_000_000);
+            search.setMaxDepth(depth);
+            harness.run("AlphaBetaSearch.depth" + depth, size, 1, () -> search.search(moves).hashCode());
+        }
+        // likewise, the tree search is measured to a fixed number of iterations in one thread
+        var treeSearch = new MonteCarloTreeSearch(game, Long.MAX_VALUE / 2_000_000);
+        treeSearch.setIterations(100);
+        treeSearch.setParallelism(1);
+        harness.run("MonteCarloTreeSearch.iterations100", size, 1, () -> treeSearch.search(moves).hashCode());
+        for (var behavior : Behavior.values()) {
+            harness.run("MakeMoveByBehavior." + behavior, size, 1,
+                    () -> new MakeMoveByBehavior(game, moves, behavior).getNextMove().hashCode());
+        }
+    }
+
+    /**
+     * Benchmark the incremental evaluation against evaluating from scratch, and the cost of keeping it up to date.
+     */
+    private static void benchmarkEvaluation(BenchmarkHarness harness, JesonMor game) {
+        var size = game.getConfiguration().getSize();
+        var position = game.copyPosition();
+        var moves = Perft.generateMoves(position, Perft.PIECE_MOVES);
+        harness.run("Evaluator.evaluate", size, 1, () -> position.getEvaluator().evaluate(0));
+        harness.run("Evaluator.fromScratch", size, 1, () -> {
+            var evaluator = new Evaluator(position.getConfiguration());
+            var pieceIndex = position.getPieceIndex();
+            var bitBoard = position.getBitBoard();
+            for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+                for (int i = 0; i < pieceIndex.getCount(player); i++) {
+                    var square = pieceIndex.getSquare(player, i);
+                    var piece = position.getPiece(bitBoard.x(square), bitBoard.y(square));
+                    evaluator.add(player, BitBoard.typeOf(piece), square);
+                }
+            }
+            return evaluator.evaluate(0);
+        });
+        harness.run("Game.makeUnmakeMove", size, moves.length, () -> {
+            var sum = 0;
+            for (var move : moves) {
+                var token = position.makeMove(move);
+                sum += position.getEvaluator().evaluate(0);
+                position.unmakeMove(token);
+            }
+            return sum;
+        });
+        var attackedPosition = game.copyPosition();
+        attackedPosition.getAttackMap();
+        harness.run("AttackMap.makeUnmakeMove", size, moves.length, () -> {
+            var sum = 0;
+            for (var move : moves) {
+                var token = attackedPosition.makeMove(move);
+                sum += attackedPosition.getAttackMap().countAttackers(0, 0);
+                attackedPosition.unmakeMove(token);
+            }
+            return sum;
+        });
+        harness.run("AttackMap.fromScratch", size, 1,
+                () -> new AttackMap(position.getBitBoard()).countAttackers(0, 0));
+        var table = KnightMoveTable.forSize(size);
+        harness.run("KnightMoveTable.computeCenterDistances", size, 1,
+                () -> table.computeCenterDistances(position.getBitBoard())[0]);
+        harness.run("Game.getKnightCenterDistances", size, 1, () -> position.getKnightCenterDistances()[0]);
+    }
+
+    private static void benchmarkOutput(BenchmarkHarness harness, JesonMor game) {
+        var size = game.getConfiguration().getSize();
+        var console = System.out;
+        System.setOut(BenchmarkHarness.NULL_OUTPUT);
+        try {
+            harness.run("Game.refreshOutput", size, 1, () -> {
+                game.refreshOutput();
+                return 1;
+            });
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var warmUpMillis = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        var measureMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        var harness = new BenchmarkHarness(warmUpMillis, measureMillis);
+        for (var size : SIZES) {
+            var humans = new Player[]{new ConsolePlayer("White", Color.WHITE), new ConsolePlayer("Black", Color.BLACK)};
+            var game = createPosition(size, humans);
+            benchmarkPieces(harness, game, humans[0]);
+            benchmarkRules(harness, game, humans[0]);
+            harness.run("JesonMor.getAvailableMoves.human", size, 1,
+                    () -> game.getAvailableMoves(humans[0]).length);
+            benchmarkDecisions(harness, game, humans[0]);
+            benchmarkEvaluation(harness, game);
+            benchmarkOutput(harness, game);
+
+            var computers = new Player[]{new ComputerPlayer("White", Color.WHITE),
+                    new ComputerPlayer("Black", Color.BLACK)};
+            var computerGame = createPosition(size, computers);
+            var console = System.out;
+            System.setOut(BenchmarkHarness.NULL_OUTPUT);
+            try {
+                harness.run("JesonMor.getAvailableMoves.computer", size, 1,
+                        () -> computerGame.getAvailableMoves(computers[0]).length);
+            } finally {
+                System.setOut(console);
+                stopThreads(computerGame);
+            }
+            System.err.println("finished size " + size);
+        }
+        var json = harness.toJson();
+        System.out.println(json);
+        if (args.length > 0) {
+            Files.writeString(Path.of(args[0]), json + "\n");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitBoardTests {
+    private MockPlayer player1;
+    private MockPlayer player2;
+
+    @BeforeEach
+    public void setUpGame() {
+        this.player1 = new MockPlayer(Color.PURPLE);
+        this.player2 = new MockPlayer(Color.YELLOW);
+    }
+
+    /**
+     * The bitboard should contain the same pieces as {@link Game#board}
+     */
+    @Test
+    public void testInitialOccupancy() {
+        var config = new Configuration(5, new Player[]{player1, player2}, 0, 3, 2);
+        config.addInitialPiece(new Knight(player1), 0, 0);
+        config.addInitialPiece(new Archer(player1), 1, 0);
+        config.addInitialPiece(new Knight(player2), 2, 4);
+        var game = new JesonMor(config);
+        var bitBoard = game.getBitBoard();
+        assertEquals(2, bitBoard.countPieces(0));
+        assertEquals(1, bitBoard.countPieces(0, BitBoard.KNIGHT));
+        assertEquals(1, bitBoard.countPieces(0, BitBoard.ARCHER));
+        assertEquals(1, bitBoard.countPieces(1, BitBoard.KNIGHT));
+        assertTrue(bitBoard.isEmpty(2, 2));
+        assertFalse(bitBoard.isEmpty(1, 0));
+        assertTrue(bitBoard.isOccupiedBy(1, BitBoard.KNIGHT, bitBoard.index(2, 4)));
+    }
+
+    /**
+     * The bitboard should be kept in sync when pieces are moved and captured
+     */
+    @Test
+    public void testMovePieceKeepsBitBoardInSync() {
+        var config = new Configuration(5, new Player[]{player1, player2}, 0, 3, 2);
+        config.addInitialPiece(new Knight(player1), 0, 0);
+        config.addInitialPiece(new Knight(player2), 1, 2);
+        var game = new JesonMor(config);
+        var bitBoard = game.getBitBoard();
+        assertEquals(0, bitBoard.countKnightsInCriticalRegion(0));
+        assertEquals(1, bitBoard.countKnightsInCriticalRegion(1));
+
+        game.movePiece(new Move(0, 0, 1, 2));
+        assertTrue(bitBoard.isEmpty(0, 0));
+        assertTrue(bitBoard.isOccupiedBy(0, BitBoard.KNIGHT, bitBoard.index(1, 2)));
+        assertEquals(0, bitBoard.countPieces(1));
+        assertEquals(1, bitBoard.countKnightsInCriticalRegion(0));
+        assertEquals(0, bitBoard.countKnightsInCriticalRegion(1));
+        assertEquals(1, game.getCriticalRegionKnightCount(player1));
+        assertEquals(0, game.getCriticalRegionKnightCount(player2));
+    }
+
+    /**
+     * The critical region knight counters should match the bitboard after a sequence of moves
+     */
+    @Test
+    public void testCriticalRegionKnightCount() {
+        var config = new Configuration(9, new Player[]{player1, player2}, 0, 3, 2);
+        config.addInitialPiece(new Knight(player1), 0, 0);
+        config.addInitialPiece(new Knight(player1), 3, 4);
+        config.addInitialPiece(new Archer(player1), 6, 4);
+        config.addInitialPiece(new Knight(player2), 8, 8);
+        var game = new JesonMor(config);
+        assertEquals(1, game.getCriticalRegionKnightCount(player1));
+        assertEquals(0, game.getCriticalRegionKnightCount(player2));
+
+        game.movePiece(new Move(0, 0, 1, 2));
+        game.movePiece(new Move(3, 4, 4, 6));
+        game.movePiece(new Move(1, 2, 2, 4));
+        assertEquals(1, game.getCriticalRegionKnightCount(player1));
+        assertEquals(game.getBitBoard().countKnightsInCriticalRegion(0), game.getCriticalRegionKnightCount(player1));
+    }
+
+    @Test
+    public void testRowMaskAndIteration() {
+        var config = new Configuration(9, new Player[]{player1, player2}, 0, 3, 2);
+        var bitBoard = new BitBoard(config);
+        var mask = bitBoard.rowMask(3, 5);
+        assertEquals(27, BitBoard.count(mask));
+        assertArrayEquals(mask, bitBoard.getCriticalRegion());
+
+        var visited = 0;
+        for (int square = BitBoard.nextSquare(mask, 0); square >= 0; square = BitBoard.nextSquare(mask, square + 1)) {
+            assertTrue(bitBoard.y(square) >= 3 && bitBoard.y(square) <= 5);
+            visited++;
+        }
+        assertEquals(27, visited);
+    }
+}
@@ -0,0 +1,92 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluatorTests {
+    private static int computeValue(Game game, int player) {
+        var evaluator = new Evaluator(game.getConfiguration());
+        var size = game.getConfiguration().getSize();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var piece = game.getPiece(x, y);
+                if (piece != null) {
+                    evaluator.add(game.getPlayerIndex(piece.getPlayer()), BitBoard.typeOf(piece), x * size + y);
+                }
+            }
+        }
+        return evaluator.getValue(player);
+    }
+
+    /**
+     * The incremental evaluation should always equal the evaluation recomputed from scratch, when moves are made and
+     * taken back in random order, and the evaluation delta of a move should predict the change.
+     */
+    @Test
+    public void testIncrementalEvaluationMatchesRecomputation() {
+        var random = new Random(3021);
+        for (int size = 5; size <= 25; size += 4) {
+            var game = TestGames.createGame(size);
+            var tokens = new ArrayDeque<UndoToken>();
+            for (int step = 0; step < 200; step++) {
+                var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+                if (tokens.isEmpty() || (moves.length > 0 && random.nextInt(4) != 0)) {
+                    if (moves.length == 0) {
+                        break;
+                    }
+                    var player = game.getCurrentPlayerID();
+                    var features = SmartMoveFeatures.extract(game, moves);
+                    var i = random.nextInt(moves.length);
+                    var before = game.getEvaluator().evaluate(player);
+                    tokens.push(game.makeMove(moves[i]));
+                    assertEquals(before + features.getEvaluationDelta(i), game.getEvaluator().evaluate(player));
+                } else {
+                    game.unmakeMove(tokens.pop());
+                }
+                for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+                    assertEquals(computeValue(game, player), game.getEvaluator().getValue(player),
+                            "size " + size + " step " + step);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPieceSquareValues() {
+        var players = new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+        var evaluator = new Evaluator(new Configuration(5, players, 1));
+        // central knight: proximity 5, 8 knight moves, and in the critical region
+        assertEquals(Evaluator.KNIGHT_VALUE + 5 * Evaluator.PROXIMITY_VALUE + Evaluator.CENTRAL_KNIGHT_VALUE
+                        + 8 * Evaluator.MOBILITY_VALUE + Evaluator.CRITICAL_REGION_VALUE,
+                evaluator.valueOf(BitBoard.KNIGHT, 12));
+        // corner knight: proximity 1 and 2 knight moves, outside the critical region
+        assertEquals(Evaluator.KNIGHT_VALUE + Evaluator.PROXIMITY_VALUE + 2 * Evaluator.MOBILITY_VALUE,
+                evaluator.valueOf(BitBoard.KNIGHT, 0));
+        assertEquals(Evaluator.ARCHER_VALUE, evaluator.valueOf(BitBoard.ARCHER, 0));
+        assertEquals(Evaluator.OTHER_VALUE, evaluator.valueOf(BitBoard.OTHER, 24));
+    }
+
+    @Test
+    public void testCopyPositionHasOwnEvaluator() {
+        var game = TestGames.createGame(9);
+        var value = game.getEvaluator().evaluate(0);
+        assertEquals(0, value);
+        var copy = game.copyPosition();
+        copy.makeMove(Perft.generateMoves(copy, Perft.PIECE_MOVES)[0]);
+        assertNotEquals(0, copy.getEvaluator().evaluate(0));
+        assertEquals(value, game.getEvaluator().evaluate(0));
+
+        // replacing the board directly is picked up
+        game.board = new Piece[9][9];
+        game.board[0][0] = new Knight(game.getConfiguration().getPlayers()[0]);
+        game.board[8][8] = new Archer(game.getConfiguration().getPlayers()[1]);
+        assertEquals(computeValue(game, 0) - computeValue(game, 1), game.getEvaluator().evaluate(0));
+    }
+}
@@ -0,0 +1,75 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of canonical {@link Place} and {@link Move}, and the allocation-free lookups of {@link Game}.
+ */
+public class FlyweightTests {
+    /**
+     * Allocation of all iterations of a loop is allowed to be at most this number of bytes,
+     * which is far less than allocating one object per iteration.
+     */
+    private static final long ALLOCATION_TOLERANCE = 64 * 1024;
+
+    private static long allocatedBytes() {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void testCanonicalPlace() {
+        assertSame(Place.of(3, 4), Place.of(3, 4));
+        assertEquals(new Place(3, 4), Place.of(3, 4));
+        assertEquals(new Place(-1, 30), Place.of(-1, 30));
+    }
+
+    @Test
+    public void testCanonicalMove() {
+        assertSame(Move.of(0, 0, 1, 2), Move.of(Place.of(0, 0), Place.of(1, 2)));
+        assertSame(Move.of(0, 0, 1, 2), Move.of(Place.of(0, 0), 1, 2));
+        assertEquals(new Move(0, 0, 1, 2), Move.of(0, 0, 1, 2));
+        assertSame(Place.of(1, 2), Move.of(0, 0, 1, 2).getDestination());
+        assertEquals(new Move(-1, -1, -1, -1), Move.of(-1, -1, -1, -1));
+    }
+
+    /**
+     * Scanning the board through {@link Game#getPiece(int, int)} and looking up canonical places and moves should not
+     * allocate.
+     */
+    @Test
+    public void testLookupsDoNotAllocate() {
+        var config = new Configuration(25, new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)});
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        var size = game.getConfiguration().getSize();
+        var rounds = 200;
+        var found = 0;
+        for (int warmUp = 0; warmUp < 2; warmUp++) {
+            var before = allocatedBytes();
+            for (int round = 0; round < rounds; round++) {
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < size; y++) {
+                        if (game.getPiece(x, y) != null && game.getPiece(Place.of(x, y)) != null) {
+                            found++;
+                        }
+                        if (Move.of(x, y, size - 1 - x, size - 1 - y) == null || game.isCentralPlace(x, y)) {
+                            found--;
+                        }
+                    }
+                }
+            }
+            var allocated = allocatedBytes() - before;
+            if (warmUp == 1) {
+                assertTrue(allocated < ALLOCATION_TOLERANCE, "allocated " + allocated + " bytes");
+            }
+        }
+        assertEquals(2 * rounds * (2 * size - 1), found);
+    }
+}
@@ -4,6 +4,7 @@ import castle.comp3021.assignment.textversion.JesonMor;
 import castle.comp3021.assignment.mock.MockPiece;
 import castle.comp3021.assignment.mock.MockPlayer;
 import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.piece.KnightMoveTable;
 import castle.comp3021.assignment.util.Compares;
 import castle.comp3021.assignment.util.PA1Test;
 import org.junit.jupiter.api.Assertions;
@@ -119,4 +120,62 @@ public class KnightTests {
         };
         assertTrue(Compares.areContentsEqual(moves, expectedMoves));
     }
+
+    /**
+     * The move table of {@link KnightMoveTable} should be shared for the same board size and contain the blocking
+     * square of every move.
+     */
+    @Test
+    public void testMoveTable() {
+        var table = KnightMoveTable.forSize(25);
+        assertSame(table, KnightMoveTable.forSize(25));
+        var corner = table.index(0, 0);
+        assertEquals(2, table.getDestinations(corner).length);
+        assertEquals(table.index(0, 1), table.getBlock(corner, table.index(1, 2)));
+        assertEquals(table.index(1, 0), table.getBlock(corner, table.index(2, 1)));
+        assertEquals(-1, table.getBlock(corner, table.index(1, 1)));
+        assertEquals(8, table.getDestinations(table.index(12, 12)).length);
+    }
+
+    /**
+     * The distances to the central place should count knight moves, and pieces on the gameboard should block them.
+     */
+    @Test
+    public void testCenterDistances() {
+        var table = KnightMoveTable.forSize(5);
+        assertEquals(0, table.getCenterDistance(table.index(2, 2)));
+        assertEquals(1, table.getCenterDistance(table.index(0, 1)));
+        assertEquals(2, table.getCenterDistance(table.index(1, 1)));
+        assertEquals(4, table.getCenterDistance(table.index(0, 0)));
+        assertEquals(KnightMoveTable.UNREACHABLE, KnightMoveTable.forSize(3).getCenterDistance(0));
+
+        this.config.addInitialPiece(new Knight(player1), 0, 1);
+        this.config.addInitialPiece(new MockPiece(player2), 1, 1);
+        this.config.addInitialPiece(new Knight(player2), 4, 4);
+        var game = new JesonMor(this.config);
+        var distances = game.getKnightCenterDistances();
+        // (1, 1) blocks the move from (0, 1) to the central place
+        assertEquals(3, distances[table.index(0, 1)]);
+        assertEquals(2, distances[table.index(1, 1)]);
+        assertSame(distances, game.getKnightCenterDistances());
+        game.setPiece(1, 1, null);
+        assertEquals(1, game.getKnightCenterDistances()[table.index(0, 1)]);
+    }
+
+    /**
+     * {@link Behavior#GREEDY} should move a knight closer to the central place by knight moves rather than by
+     * Manhattan distance.
+     */
+    @Test
+    public void testGreedyCountsKnightMoves() {
+        var knight1 = new Knight(player1);
+        this.config.addInitialPiece(knight1, 2, 0);
+        this.config.addInitialPiece(new Knight(player2), 4, 4);
+        var game = new JesonMor(this.config);
+        var moves = knight1.getAvailableMoves(game, new Place(2, 0));
+        for (int i = 0; i < 10; i++) {
+            var move = new MakeMoveByBehavior(game, moves, Behavior.GREEDY).getNextMove();
+            assertTrue(move.equals(new Move(2, 0, 0, 1)) || move.equals(new Move(2, 0, 4, 1)), move.toString());
+        }
+    }
 }
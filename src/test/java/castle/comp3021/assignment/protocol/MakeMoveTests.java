@@ -0,0 +1,100 @@
+package castle.comp3021.assignment.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link Game#makeMove(Move)} and {@link Game#unmakeMove(UndoToken)}.
+ */
+public class MakeMoveTests {
+    private static String snapshot(Game game) {
+        var players = game.getConfiguration().getPlayers();
+        return game.getPositionHash() + "/" + game.getNumMoves() + "/" + game.currentPlayer.getName() + "/"
+                + players[0].getScore() + "/" + players[1].getScore() + "/"
+                + java.util.Arrays.deepToString(game.getBoard());
+    }
+
+    @Test
+    public void testMakeMove() {
+        var game = TestGames.createGame(5);
+        var players = game.getConfiguration().getPlayers();
+        var token = game.makeMove(new Move(0, 0, 1, 2));
+        assertNull(game.getPiece(0, 0));
+        assertSame(token.getMovedPiece(), game.getPiece(1, 2));
+        assertNull(token.getCapturedPiece());
+        assertSame(players[0], token.getMover());
+        assertEquals(3, players[0].getScore());
+        assertEquals(1, game.getNumMoves());
+        assertSame(players[1], game.currentPlayer);
+    }
+
+    /**
+     * Random sequences of moves taken back in reverse order should restore every previous state exactly.
+     */
+    @Test
+    public void testUnmakeRestoresState() {
+        var random = new Random(3021);
+        for (int size = 5; size <= 15; size += 2) {
+            var game = TestGames.createGame(size);
+            var tokens = new ArrayDeque<UndoToken>();
+            var snapshots = new ArrayDeque<String>();
+            for (int step = 0; step < 300; step++) {
+                var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+                if (moves.length > 0 && (tokens.isEmpty() || random.nextInt(3) != 0)) {
+                    snapshots.push(snapshot(game));
+                    tokens.push(game.makeMove(moves[random.nextInt(moves.length)]));
+                } else if (!tokens.isEmpty()) {
+                    game.unmakeMove(tokens.pop());
+                    assertEquals(snapshots.pop(), snapshot(game), "size " + size + " step " + step);
+                }
+            }
+        }
+    }
+
+    /**
+     * Making and taking back moves should allocate nothing but the tokens.
+     */
+    @Test
+    public void testMakeMoveAllocatesOnlyToken() {
+        var game = TestGames.createGame(9);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var rounds = 10_000;
+        long allocated = 0;
+        for (int warmUp = 0; warmUp < 2; warmUp++) {
+            var before = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int round = 0; round < rounds; round++) {
+                game.unmakeMove(game.makeMove(moves[round % moves.length]));
+            }
+            allocated = bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        }
+        // a token takes at most 48 bytes
+        assertTrue(allocated < 64L * rounds, "allocated " + allocated + " bytes");
+    }
+
+    /**
+     * Moves made on a copy of the position should not affect the original game.
+     */
+    @Test
+    public void testCopyPosition() {
+        var game = TestGames.createGame(7);
+        var players = game.getConfiguration().getPlayers();
+        var before = snapshot(game);
+        var copy = game.copyPosition();
+        assertEquals(game.getPositionHash(), copy.getPositionHash());
+        assertEquals(players[0], copy.currentPlayer);
+        assertNotSame(players[0], copy.currentPlayer);
+
+        var moves = Perft.generateMoves(copy, Perft.PIECE_MOVES);
+        copy.makeMove(moves[0]);
+        assertEquals(before, snapshot(game));
+        assertEquals(Zobrist.computeHash(copy), copy.getPositionHash());
+        assertNotEquals(game.getPositionHash(), copy.getPositionHash());
+        assertSame(players[0], game.getPiece(0, 0).getPlayer());
+    }
+}
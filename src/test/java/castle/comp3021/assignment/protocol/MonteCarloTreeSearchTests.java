@@ -0,0 +1,90 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloTreeSearchTests {
+    private final Player player1 = new MockPlayer(Color.PURPLE);
+    private final Player player2 = new MockPlayer(Color.YELLOW);
+
+    @Test
+    public void testForcedWinByLeavingCentralPlace() {
+        var game = TestGames.createEmptyGame(5, player1, player2);
+        game.board[0][1] = new Knight(player1);
+        game.board[4][0] = new Knight(player2);
+        game.board[4][4] = new Archer(player2);
+        var search = new MonteCarloTreeSearch(game, 10_000);
+        search.setIterations(2000);
+        search.setParallelism(1);
+        search.setSeed(3021);
+        // no move wins at once, but the knight entering the central place cannot be stopped from leaving it
+        assertEquals(new Move(0, 1, 2, 2), search.search(Perft.generateMoves(game, Perft.PIECE_MOVES)));
+        assertEquals(2000, search.getCompletedIterations());
+    }
+
+    @Test
+    public void testMoveToCentralPlace() {
+        var game = TestGames.createEmptyGame(7, player1, player2);
+        game.board[1][2] = new Knight(player1);
+        game.board[0][6] = new Archer(player1);
+        game.board[6][6] = new Knight(player2);
+        game.board[6][0] = new Archer(player2);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var move = new MakeMoveByStrategy(game, moves, Strategy.MCTS, 10_000, 1, 3000).getNextMove();
+        assertEquals(new Move(1, 2, 3, 3), move);
+    }
+
+    @Test
+    public void testIterations() {
+        var game = TestGames.createEmptyGame(7, player1, player2);
+        game.board[0][0] = new Knight(player1);
+        game.board[0][6] = new Archer(player1);
+        game.board[6][6] = new Knight(player2);
+        game.board[6][0] = new Archer(player2);
+        var search = new MonteCarloTreeSearch(game, 10_000);
+        search.setIterations(1001);
+        search.setParallelism(4);
+        assertNotNull(search.search(Perft.generateMoves(game, Perft.PIECE_MOVES)));
+        assertEquals(1001, search.getCompletedIterations());
+    }
+
+    @Test
+    public void testForcedWinByCapturingLastPiece() {
+        var game = TestGames.createEmptyGame(5, player1, player2);
+        game.board[0][0] = new Knight(player1);
+        game.board[2][0] = new Archer(player1);
+        game.board[3][0] = new Knight(player2);
+        var search = new MonteCarloTreeSearch(game, 10_000);
+        search.setIterations(2000);
+        search.setParallelism(1);
+        search.setSeed(3021);
+        search.setRolloutBehavior(Behavior.GREEDY);
+        // no move wins at once, and only this one leaves the enemy knight no move escaping a capture
+        assertEquals(new Move(0, 0, 2, 1), search.search(Perft.generateMoves(game, Perft.PIECE_MOVES)));
+        assertEquals(2000, search.getCompletedIterations());
+    }
+
+    @Test
+    public void testParallelSearchRestoresGame() {
+        var config = new Configuration(9, new Player[]{player1, player2}, 1);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        game.currentPlayer = player1;
+        var hash = game.getPositionHash();
+        var search = new MonteCarloTreeSearch(game, 200);
+        search.setParallelism(3);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        assertTrue(Arrays.asList(moves).contains(search.search(moves)));
+        assertTrue(search.getCompletedIterations() > 0);
+        assertEquals(hash, game.getPositionHash());
+        assertEquals(0, player1.getScore());
+        assertEquals(0, game.getNumMoves());
+    }
+}
@@ -0,0 +1,89 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTests {
+    @Test
+    public void testWriteAndLoad() throws IOException {
+        var builder = new OpeningBookBuilder(20);
+        builder.addGame(TestGames.createBookGame(5).getConfiguration(), 2);
+        var path = Files.createTempFile("opening-book", ".bin");
+        try {
+            builder.write(path);
+            assertEquals(OpeningBook.HEADER_BYTES + builder.size() * OpeningBook.ENTRY_BYTES, Files.size(path));
+            var book = OpeningBook.load(path);
+            assertEquals(builder.size(), book.size());
+
+            // the start position and every reply to the first move are in the book
+            var game = TestGames.createBookGame(5);
+            var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+            assertEquals(1 + moves.length, book.size());
+            assertTrue(Arrays.asList(moves).contains(book.lookup(game)));
+            for (var move : moves) {
+                var token = game.makeMove(move);
+                assertTrue(Arrays.asList(Perft.generateMoves(game, Perft.PIECE_MOVES)).contains(book.lookup(game)));
+                game.unmakeMove(token);
+            }
+
+            // positions out of the book, and the same pieces with other rules, are not found
+            game.makeMove(moves[0]);
+            game.makeMove(Perft.generateMoves(game, Perft.PIECE_MOVES)[0]);
+            assertNull(book.lookup(game));
+            var players = TestGames.createBookGame(5).getConfiguration().getPlayers();
+            var configuration = new Configuration(5, players, 1, 3, 1);
+            configuration.setAllInitialPieces();
+            var otherRules = new JesonMor(configuration);
+            otherRules.currentPlayer = players[0];
+            assertNull(book.lookup(otherRules));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testMalformedBook() throws IOException {
+        var path = Files.createTempFile("opening-book", ".bin");
+        try {
+            Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+            assertThrows(IllegalArgumentException.class, () -> OpeningBook.load(path));
+        } finally {
+            Files.delete(path);
+        }
+        assertNull(OpeningBook.EMPTY.lookup(TestGames.createBookGame(5)));
+    }
+
+    @Test
+    public void testDefaultBookCoversStandardSetups() {
+        var book = OpeningBook.getDefault();
+        for (int size = 5; size <= 25; size += 2) {
+            var game = TestGames.createBookGame(size);
+            var move = book.lookup(game);
+            assertNotNull(move, "size " + size);
+            assertTrue(game.getConfiguration().getRulePipeline().isValid(game, move), "size " + size);
+        }
+    }
+
+    @Test
+    public void testComputerPlayerPlaysBookMove() {
+        var game = TestGames.createBookGame(9);
+        var bookMove = OpeningBook.getDefault().lookup(game);
+        var player = new ComputerPlayer("White", Color.WHITE, Strategy.SEARCH);
+        player.setSearchTimeBudgetMillis(1);
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        assertEquals(bookMove, player.nextMove(game, moves));
+
+        // the piece of the book move does not propose a move, e.g. it is paused
+        var otherMoves = Arrays.stream(moves)
+                .filter(move -> !move.getSource().equals(bookMove.getSource()))
+                .toArray(Move[]::new);
+        assertTrue(Arrays.asList(otherMoves).contains(player.nextMove(game, otherMoves)));
+    }
+}
@@ -0,0 +1,55 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.util.Compares;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cross-check of the legal-only move generation of pieces against filtering every square through the rules.
+ */
+public class PerftTests {
+    @Test
+    public void testKnownCounts() {
+        var game = TestGames.createGame(new Configuration(5, TestGames.createMockPlayers(), 1, 1, 1));
+        assertEquals(1, Perft.count(game, 0));
+        assertEquals(Perft.generateMoves(game, Perft.PIECE_MOVES).length, Perft.count(game, 1));
+        assertEquals(Perft.count(game, 3, Perft.RULE_FILTERED), Perft.count(game, 3));
+    }
+
+    @Test
+    public void testPerftOnAllSizes() {
+        for (int size = 5; size <= 25; size += 2) {
+            var game = TestGames.createGame(new Configuration(size, TestGames.createMockPlayers(), 1, size - 2, 2));
+            assertEquals(Perft.count(game, 2, Perft.RULE_FILTERED), Perft.count(game, 2), "size " + size);
+        }
+    }
+
+    /**
+     * Compare generated moves along random games, where pieces get captured and the critical region gets full.
+     */
+    @Test
+    public void testRandomGames() {
+        var random = new Random(3021);
+        for (int size = 5; size <= 25; size += 2) {
+            var criticalRegionSize = 1 + 2 * random.nextInt(size / 2);
+            var configuration = new Configuration(size, TestGames.createMockPlayers(), random.nextInt(4),
+                    criticalRegionSize, 1 + random.nextInt(2));
+            var game = TestGames.createGame(configuration);
+            for (int ply = 0; ply < 60; ply++) {
+                var expected = Perft.generateMoves(game, Perft.RULE_FILTERED);
+                var actual = Perft.generateMoves(game, Perft.PIECE_MOVES);
+                assertTrue(Compares.areContentsEqual(expected, actual), "size " + size + " ply " + ply);
+                if (actual.length == 0) {
+                    break;
+                }
+                var move = actual[random.nextInt(actual.length)];
+                game.setPiece(move.getDestination().x(), move.getDestination().y(), game.getPiece(move.getSource()));
+                game.setPiece(move.getSource().x(), move.getSource().y(), null);
+                game.numMoves++;
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.action.PausePieceAction;
+import castle.comp3021.assignment.action.ResumePieceAction;
+import castle.comp3021.assignment.action.TerminatePieceAction;
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.protocol.exception.ActionException;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceExecutorTests {
+    private static final int SIZE = 9;
+
+    private static JesonMor createGame(PieceExecutor executor) {
+        var players = new Player[]{new ComputerPlayer("White", Color.WHITE), new ComputerPlayer("Black", Color.BLACK)};
+        var configuration = new Configuration(SIZE, players, 0);
+        configuration.setPieceExecutor(executor);
+        for (int x = 0; x < SIZE; x++) {
+            configuration.addInitialPiece(x % 2 == 0 ? new Knight(players[0]) : new Archer(players[0]), x, 0);
+            configuration.addInitialPiece(x % 2 == 0 ? new Knight(players[1]) : new Archer(players[1]), x, SIZE - 1);
+        }
+        var game = new JesonMor(configuration);
+        game.currentPlayer = players[0];
+        return game;
+    }
+
+    private static void stopPieces(Game game) {
+        for (var worker : game.getConfiguration().getPieceWorkerMap().values()) {
+            worker.stop();
+        }
+    }
+
+    private static void assertProposes(Game game, int x) {
+        var source = Place.of(x, 0);
+        var move = game.getPiece(source).getCandidateMove(game, source);
+        assertNotNull(move);
+        assertTrue(Arrays.asList(game.getPiece(source).getAvailableMoves(game, source)).contains(move));
+    }
+
+    private static void assertPauseResumeTerminate(PieceExecutor executor) throws ActionException, InterruptedException {
+        var game = createGame(executor);
+        try {
+            for (int x = 0; x < SIZE; x++) {
+                assertProposes(game, x);
+            }
+            var place = Place.of(0, 0);
+            var thread = game.getConfiguration().getPieceThread(game.getPiece(place));
+            if (executor.getMode() == PieceExecutor.Mode.POOLED) {
+                assertNull(thread);
+            } else {
+                assertTrue(thread.isAlive());
+            }
+            new PausePieceAction(game, new String[]{"a1"}).perform();
+            assertNull(game.getPiece(place).getCandidateMove(game, place));
+            new ResumePieceAction(game, new String[]{"a1"}).perform();
+            assertProposes(game, 0);
+            new TerminatePieceAction(game, new String[]{"a1"}).perform();
+            assertNull(game.getPiece(place).getCandidateMove(game, place));
+            if (thread != null) {
+                // the terminated piece is woken and its thread ends
+                thread.join(10_000);
+                assertFalse(thread.isAlive());
+            }
+            assertProposes(game, 1);
+        } finally {
+            stopPieces(game);
+        }
+    }
+
+    @Test
+    public void testPlatformThreads() throws ActionException, InterruptedException {
+        var executor = PieceExecutor.platform();
+        assertEquals(PieceExecutor.Mode.PLATFORM, executor.getMode());
+        assertPauseResumeTerminate(executor);
+    }
+
+    @Test
+    public void testVirtualThreads() throws ActionException, InterruptedException {
+        var executor = PieceExecutor.virtual();
+        // virtual threads fall back to platform threads before Java 21
+        if (Runtime.version().feature() >= 21) {
+            assertEquals(PieceExecutor.Mode.VIRTUAL, executor.getMode());
+        } else {
+            assertEquals(PieceExecutor.Mode.PLATFORM, executor.getMode());
+        }
+        assertPauseResumeTerminate(executor);
+    }
+
+    @Test
+    public void testPooledPiecesShareThreads() throws ActionException, InterruptedException {
+        var executor = PieceExecutor.pooled(2);
+        assertEquals(PieceExecutor.Mode.POOLED, executor.getMode());
+        try {
+            assertPauseResumeTerminate(executor);
+
+            // the pieces of several games are handled by the same two threads
+            var threads = new HashSet<Thread>();
+            for (int round = 0; round < 3; round++) {
+                var game = createGame(executor);
+                assertTrue(game.getConfiguration().getAllThreads().isEmpty());
+                assertEquals(2 * SIZE, game.getConfiguration().getPieceWorkerMap().size());
+                for (int x = 0; x < SIZE; x++) {
+                    assertProposes(game, x);
+                }
+                stopPieces(game);
+            }
+            for (var thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("piece-pool-")) {
+                    threads.add(thread);
+                }
+            }
+            assertTrue(threads.size() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCandidateMovesShareOneDeadline() {
+        var players = new Player[]{new ComputerPlayer("White", Color.WHITE), new ComputerPlayer("Black", Color.BLACK)};
+        var configuration = new Configuration(SIZE, players, 0);
+        configuration.setTurnBudgetMillis(300);
+        var game = new JesonMor(configuration);
+        game.board = new Piece[SIZE][SIZE];
+        var stalled = new ArrayList<CompletableFuture<Move>>();
+        for (int x = 0; x < 4; x++) {
+            game.setPiece(x, 0, new MockPiece(players[0]) {
+                @Override
+                public CompletableFuture<Move> requestCandidateMove(Game game, Place source) {
+                    var candidate = new CompletableFuture<Move>();
+                    stalled.add(candidate);
+                    return candidate;
+                }
+            });
+        }
+        game.setPiece(5, 0, new MockPiece(players[0]));
+        game.setPiece(5, SIZE - 1, new MockPiece(players[1]));
+        game.currentPlayer = players[0];
+
+        var start = System.nanoTime();
+        var moves = game.getAvailableMoves(players[0]);
+        var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(1, moves.length);
+        assertEquals(Place.of(5, 0), moves[0].getSource());
+        // the stalled pieces are waited for together, not one timeout after another
+        assertTrue(elapsedMillis >= 150, String.valueOf(elapsedMillis));
+        assertTrue(elapsedMillis < 600, String.valueOf(elapsedMillis));
+        assertEquals(4, stalled.size());
+        for (var candidate : stalled) {
+            assertTrue(candidate.isCancelled());
+        }
+        assertEquals(4, game.getMissedProposals().getTotal());
+        assertEquals(4, game.getMissedProposals().getCount(Behavior.RANDOM));
+        assertEquals(0, game.getMissedProposals().getCount(Behavior.GREEDY));
+        assertEquals(1, game.getMissedProposals().getCount(game.getPiece(0, 0)));
+        assertEquals(0, game.getMissedProposals().getCount(game.getPiece(5, 0)));
+    }
+
+    @Test
+    public void testPendingRequestsCompleteWhenPausedOrTerminated() {
+        var game = createGame(PieceExecutor.platform());
+        stopPieces(game);
+        var player = game.getConfiguration().getPlayers()[0];
+        // pieces without workers, so that their requests stay pending
+        var knight = new Knight(player);
+        var archer = new Archer(player);
+        var knightCandidate = knight.requestCandidateMove(game, Place.of(0, 0));
+        var archerCandidate = archer.requestCandidateMove(game, Place.of(1, 0));
+        assertFalse(knightCandidate.isDone());
+        assertFalse(archerCandidate.isDone());
+        knight.pause();
+        archer.terminate();
+        assertNull(knightCandidate.getNow(Move.of(0, 0, 0, 1)));
+        assertNull(archerCandidate.getNow(Move.of(0, 0, 0, 1)));
+    }
+
+    @Test
+    public void testPausedPiecesDoNotMissDeadline() throws InterruptedException {
+        var executor = PieceExecutor.pooled(1);
+        var players = new Player[]{new ComputerPlayer("White", Color.WHITE), new ComputerPlayer("Black", Color.BLACK)};
+        var configuration = new Configuration(SIZE, players, 0);
+        configuration.setPieceExecutor(executor);
+        configuration.setTurnBudgetMillis(5000);
+        // the single thread of the pool is busy with the first piece while the second piece is paused
+        configuration.addInitialPiece(new Knight(players[0]) {
+            @Override
+            public Move[] getAvailableMoves(Game game, Place source) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAvailableMoves(game, source);
+            }
+        }, 0, 0);
+        var paused = new Knight(players[0]);
+        configuration.addInitialPiece(paused, 2, 0);
+        configuration.addInitialPiece(new Knight(players[1]), 0, SIZE - 1);
+        var game = new JesonMor(configuration);
+        game.currentPlayer = players[0];
+        var pauser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            paused.pause();
+        });
+        try {
+            pauser.start();
+            var start = System.nanoTime();
+            var moves = game.getAvailableMoves(players[0]);
+            var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(1, moves.length);
+            assertEquals(Place.of(0, 0), moves[0].getSource());
+            assertTrue(elapsedMillis < 2500, String.valueOf(elapsedMillis));
+            assertEquals(0, game.getMissedProposals().getTotal());
+        } finally {
+            pauser.join();
+            stopPieces(game);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Knight taking a while to find its available moves
+     */
+    private static class SlowKnight extends Knight {
+        private final Set<Game> games;
+
+        SlowKnight(Player player, Set<Game> games) {
+            super(player);
+            this.games = games;
+        }
+
+        @Override
+        public Move[] getAvailableMoves(Game game, Place source) {
+            games.add(game);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getAvailableMoves(game, source);
+        }
+    }
+
+    @Test
+    public void testLateProposalsAreDiscarded() {
+        var executor = PieceExecutor.pooled(1);
+        var games = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Game, Boolean>()));
+        var players = new Player[]{new ComputerPlayer("White", Color.WHITE), new ComputerPlayer("Black", Color.BLACK)};
+        var configuration = new Configuration(SIZE, players, 0);
+        configuration.setPieceExecutor(executor);
+        for (int x = 0; x < SIZE; x += 2) {
+            configuration.addInitialPiece(new SlowKnight(players[0], games), x, 0);
+            configuration.addInitialPiece(new Knight(players[1]), x, SIZE - 1);
+        }
+        var game = new JesonMor(configuration);
+        game.currentPlayer = players[0];
+        var numPieces = (SIZE + 1) / 2;
+        try {
+            // the single thread of the pool proposes one move after another, so most proposals are late
+            configuration.setTurnBudgetMillis(50);
+            var moves = game.getAvailableMoves(players[0]);
+            assertTrue(moves.length < numPieces);
+            assertEquals(numPieces - moves.length, game.getMissedProposals().getTotal());
+
+            // proposals for the previous position arriving late do not become candidates of the next turn
+            game.movePiece(new Move(0, 0, 1, 2));
+            configuration.setTurnBudgetMillis(10_000);
+            moves = game.getAvailableMoves(players[0]);
+            assertEquals(numPieces, moves.length);
+            // pieces only read snapshots of the positions, never the game being played
+            assertFalse(games.isEmpty());
+            assertFalse(games.contains(game));
+            for (var move : moves) {
+                var source = move.getSource();
+                assertTrue(Arrays.asList(game.getPiece(source).getAvailableMoves(game, source)).contains(move));
+            }
+        } finally {
+            stopPieces(game);
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceIndexTests {
+    private static HashSet<Integer> squaresOf(PieceIndex index, int player) {
+        var squares = new HashSet<Integer>();
+        for (int i = 0; i < index.getCount(player); i++) {
+            squares.add(index.getSquare(player, i));
+        }
+        return squares;
+    }
+
+    /**
+     * The piece index should be kept in sync when pieces are moved and captured
+     */
+    @Test
+    public void testMovePieceKeepsIndexInSync() {
+        var player1 = new MockPlayer(Color.PURPLE);
+        var player2 = new MockPlayer(Color.YELLOW);
+        var config = new Configuration(5, new Player[]{player1, player2}, 0, 3, 2);
+        config.addInitialPiece(new Knight(player1), 0, 0);
+        config.addInitialPiece(new Archer(player1), 4, 0);
+        config.addInitialPiece(new Knight(player2), 1, 2);
+        var game = new JesonMor(config);
+        var index = game.getPieceIndex();
+        var bitBoard = game.getBitBoard();
+        assertEquals(2, index.getCount(0));
+        assertEquals(1, index.getCount(1));
+
+        game.movePiece(new Move(0, 0, 1, 2));
+        assertEquals(squaresOf(index, 0), new HashSet<>(List.of(bitBoard.index(1, 2), bitBoard.index(4, 0))));
+        assertEquals(0, index.getCount(1));
+        assertFalse(index.contains(bitBoard.index(0, 0)));
+        assertTrue(index.contains(bitBoard.index(1, 2)));
+    }
+
+    /**
+     * Writing {@link Game#board} directly should be picked up by the index
+     */
+    @Test
+    public void testRebuildAfterDirectBoardWrite() {
+        var player1 = new MockPlayer(Color.PURPLE);
+        var player2 = new MockPlayer(Color.YELLOW);
+        var game = new JesonMor(new Configuration(5, new Player[]{player1, player2}));
+        game.board = new Piece[5][5];
+        game.board[3][1] = new Knight(player2);
+        var index = game.getPieceIndex();
+        assertEquals(0, index.getCount(0));
+        assertEquals(1, index.getCount(1));
+        assertEquals(game.getBitBoard().index(3, 1), index.getSquare(1, 0));
+    }
+}
@@ -0,0 +1,94 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.player.ComputerPlayer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PondererTests {
+    private static void awaitPondering(Ponderer ponderer) throws InterruptedException {
+        var deadline = System.nanoTime() + 60_000_000_000L;
+        while (ponderer.isPondering() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(ponderer.isPondering());
+    }
+
+    @Test
+    public void testRepliesArePondered() throws InterruptedException {
+        var game = TestGames.createBookGame(7);
+        var move = Perft.generateMoves(game, Perft.PIECE_MOVES)[0];
+        var ponderer = new Ponderer();
+        ponderer.start(game, move, 10);
+        awaitPondering(ponderer);
+
+        game.makeMove(move);
+        var replies = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        assertEquals(replies.length, ponderer.getNumResults());
+        for (var reply : replies) {
+            var token = game.makeMove(reply);
+            var result = ponderer.getResult(game);
+            assertNotNull(result, reply.toString());
+            assertTrue(result.getDepth() > 0);
+            assertTrue(Arrays.asList(Perft.generateMoves(game, Perft.PIECE_MOVES)).contains(result.getMove()));
+            game.unmakeMove(token);
+        }
+        assertNull(ponderer.getResult(game));
+    }
+
+    @Test
+    public void testStopCancelsOtherReplies() throws InterruptedException {
+        var game = TestGames.createBookGame(9);
+        var move = Perft.generateMoves(game, Perft.PIECE_MOVES)[0];
+        var ponderer = new Ponderer();
+        ponderer.start(game, move, 60_000);
+        Thread.sleep(100);
+        assertTrue(ponderer.isPondering());
+
+        // the position before the move is not a reply, so every search is cancelled
+        var start = System.nanoTime();
+        ponderer.stop(game);
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        assertFalse(ponderer.isPondering());
+        // the cancelled search may still record the iterations it completed
+        assertTrue(ponderer.getNumResults() <= 1);
+    }
+
+    /**
+     * Let the computer player move and ponder, and then play the first reply of the opponent.
+     */
+    private static void ponderAndReply(ComputerPlayer player, Game game) throws InterruptedException {
+        var move = player.nextMove(game, Perft.generateMoves(game, Perft.PIECE_MOVES));
+        awaitPondering(player.getPonderer());
+        game.makeMove(move);
+        game.makeMove(Perft.generateMoves(game, Perft.PIECE_MOVES)[0]);
+    }
+
+    @Test
+    public void testComputerPlayerPlaysPonderedMove() throws InterruptedException {
+        var game = TestGames.createBookGame(7);
+        var player = new ComputerPlayer("White", Color.WHITE, Strategy.SEARCH);
+        player.setOpeningBook(OpeningBook.EMPTY);
+        player.setSearchTimeBudgetMillis(20);
+        player.setPondering(true);
+
+        ponderAndReply(player, game);
+        var result = player.getPonderer().getResult(game);
+        assertNotNull(result);
+        assertEquals(result.getMove(), player.nextMove(game, Perft.generateMoves(game, Perft.PIECE_MOVES)));
+        player.getPonderer().cancel();
+
+        // the pondered move is not proposed, so the proposed moves are searched again
+        game = TestGames.createBookGame(7);
+        ponderAndReply(player, game);
+        var ponderedMove = player.getPonderer().getResult(game).getMove();
+        var otherMoves = Arrays.stream(Perft.generateMoves(game, Perft.PIECE_MOVES))
+                .filter(other -> !other.equals(ponderedMove))
+                .toArray(Move[]::new);
+        assertTrue(Arrays.asList(otherMoves).contains(player.nextMove(game, otherMoves)));
+        player.setPondering(false);
+        assertFalse(player.getPonderer().isPondering());
+    }
+}
@@ -0,0 +1,85 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.*;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link RulePipeline} against checking all rules one by one.
+ */
+public class RulePipelineTests {
+    private static String validateByAllRules(Game game, Move move) {
+        var rules = new Rule[]{
+                new OutOfBoundaryRule(),
+                new OccupiedRule(),
+                new VacantRule(),
+                new NilMoveRule(),
+                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
+                new ArcherMoveRule(),
+                new KnightMoveRule(),
+                new KnightBlockRule(),
+                new CriticalRegionRule(),
+        };
+        for (var rule : rules) {
+            if (!rule.validate(game, move)) {
+                return rule.getDescription();
+            }
+        }
+        return null;
+    }
+
+    private static Piece randomPiece(Random random, Player player) {
+        return switch (random.nextInt(3)) {
+            case 0 -> new Knight(player);
+            case 1 -> new Archer(player);
+            default -> new MockPiece(player);
+        };
+    }
+
+    @Test
+    public void testSameViolationAsAllRules() {
+        var random = new Random(3021);
+        for (int round = 0; round < 100; round++) {
+            var size = 3 + 2 * random.nextInt(6);
+            var players = new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+            var config = new Configuration(size, players, random.nextInt(3));
+            var game = new JesonMor(config);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (random.nextDouble() < 0.4) {
+                        game.board[x][y] = randomPiece(random, players[random.nextInt(2)]);
+                    }
+                }
+            }
+            game.numMoves = random.nextInt(4);
+            var context = new MoveContext(game);
+            for (int i = 0; i < 200; i++) {
+                var move = new Move(random.nextInt(size + 2) - 1, random.nextInt(size + 2) - 1,
+                        random.nextInt(size + 2) - 1, random.nextInt(size + 2) - 1);
+                var expected = validateByAllRules(game, move);
+                var violation = config.getRulePipeline().findViolation(context.reset(move));
+                assertEquals(expected, violation == null ? null : violation.getDescription(), move.toString());
+                assertEquals(expected, players[0].validateMove(game, move));
+            }
+        }
+    }
+
+    @Test
+    public void testPipelineIsCompiledOnce() {
+        var config = new Configuration(5, new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)});
+        var pipeline = config.getRulePipeline();
+        assertSame(pipeline, config.getRulePipeline());
+        assertSame(pipeline.getRules(new Knight(config.getPlayers()[0])),
+                pipeline.getRules(new Knight(config.getPlayers()[1])));
+
+        config.setNumMovesProtection(config.getNumMovesProtection() + 1);
+        assertNotSame(pipeline, config.getRulePipeline());
+        assertEquals(config.getNumMovesProtection(), config.getRulePipeline().getNumMovesProtection());
+    }
+}
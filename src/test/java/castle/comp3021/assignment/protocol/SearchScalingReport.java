@@ -0,0 +1,76 @@
+package castle.comp3021.assignment.protocol;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Report of the speedup of parallel {@link AlphaBetaSearch} over searching in one thread.
+ * <p>
+ * For each board size, the start position is searched to a fixed depth with 1, 2, 4 and 8 threads and a fresh
+ * {@link TranspositionTable}, and the best of several runs is reported. The speedup is bounded by the number of
+ * available processors, which is printed with the report.
+ * <p>
+ * Usage: {@code java castle.comp3021.assignment.protocol.SearchScalingReport [output.json] [runs]}
+ */
+public class SearchScalingReport {
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    /**
+     * Board sizes and the depth searched on each of them
+     */
+    private static final int[][] SIZES_AND_DEPTHS = {{9, 5}, {15, 4}};
+
+    public static void main(String[] args) throws IOException {
+        var runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        var processors = Runtime.getRuntime().availableProcessors();
+        System.out.println("available processors: " + processors);
+        System.out.println("size depth threads      ms    nodes  speedup");
+        var lines = new ArrayList<String>();
+        for (var sizeAndDepth : SIZES_AND_DEPTHS) {
+            var size = sizeAndDepth[0];
+            var depth = sizeAndDepth[1];
+            var game = TestGames.createGame(size);
+            var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+            // warm up the JIT compiler so that the single thread baseline is not measured cold
+            for (var threads : THREADS) {
+                var warmUp = new AlphaBetaSearch(game, Long.MAX_VALUE / 2_000_000, new TranspositionTable());
+                warmUp.setMaxDepth(depth);
+                warmUp.setParallelism(threads);
+                warmUp.search(moves);
+            }
+            var baseline = 0.0;
+            for (var threads : THREADS) {
+                var bestMillis = Double.MAX_VALUE;
+                var nodes = 0L;
+                for (int run = 0; run < runs; run++) {
+                    var search = new AlphaBetaSearch(game, Long.MAX_VALUE / 2_000_000, new TranspositionTable());
+                    search.setMaxDepth(depth);
+                    search.setParallelism(threads);
+                    var start = System.nanoTime();
+                    search.search(moves);
+                    var millis = (System.nanoTime() - start) / 1e6;
+                    if (millis < bestMillis) {
+                        bestMillis = millis;
+                        nodes = search.getNodes();
+                    }
+                }
+                if (threads == 1) {
+                    baseline = bestMillis;
+                }
+                var speedup = baseline / bestMillis;
+                System.out.printf(Locale.ROOT, "%4d %5d %7d %7.1f %8d %8.2f%n",
+                        size, depth, threads, bestMillis, nodes, speedup);
+                lines.add(String.format(Locale.ROOT,
+                        "  {\"size\":%d,\"depth\":%d,\"threads\":%d,\"millis\":%.1f,\"nodes\":%d,\"speedup\":%.2f,"
+                                + "\"processors\":%d}",
+                        size, depth, threads, bestMillis, nodes, speedup, processors));
+            }
+        }
+        if (args.length > 0) {
+            Files.writeString(Path.of(args[0]), "[\n" + String.join(",\n", lines) + "\n]\n");
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Differential tests of {@link Strategy#SMART} against the implementation before {@link SmartMoveFeatures}, which
+ * made a separate pass over the moves for each priority.
+ */
+public class SmartMoveFeaturesTests {
+    /**
+     * The previous implementation of {@link Strategy#SMART}, with the random choices drawn from a given {@link Random}.
+     */
+    private static class LegacySmartStrategy {
+        private final Game game;
+        private final Move[] availableMoves;
+        private final Random random;
+
+        private LegacySmartStrategy(Game game, Move[] availableMoves, Random random){
+            this.game = game;
+            this.availableMoves = availableMoves;
+            this.random = random;
+        }
+
+        private Move getNextMove(){
+            //if there is a move that will win
+            Move winningMove = getWinningMove();
+            if (winningMove != null){
+                return winningMove;
+            }
+
+            //move Knight to center as much as possible
+            Move mostGreedy = getBestGreedy();
+            if (mostGreedy != null){
+                return mostGreedy;
+            }
+
+            //if a move prevent enemy win
+            Move criticalCapture = getCriticalCapture();
+            if (criticalCapture != null){
+                return criticalCapture;
+            }
+
+            Move bestCapture = getBestCapture();
+            if (bestCapture != null){
+                return bestCapture;
+            }
+
+            Move bestBlocking = getBestBlocking();
+            if (bestBlocking != null){
+                return bestBlocking;
+            }
+
+            Move minMove = Arrays.stream(availableMoves).min(Comparator.comparing(this::moveDist)).orElse(null);
+            if (minMove != null){
+                return minMove;
+            }
+
+            return availableMoves[random.nextInt(availableMoves.length)];
+        }
+
+        private Move getWinningMove(){
+            List<Move> winningMoves
+                    = Arrays.stream(availableMoves)
+                    .filter(this::winningMoveCheck)
+                    .collect(Collectors.toList());
+            if (!winningMoves.isEmpty()){
+                return winningMoves.get(random.nextInt(winningMoves.size()));
+            }else{
+                return null;
+            }
+        }
+
+        private boolean winningMoveCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            if (game.getNumMoves() < game.getConfiguration().getNumMovesProtection()){
+                return false;
+            }
+            if (game.getPiece(move.getSource()) instanceof Knight){
+                if (move.getSource().equals(game.getCentralPlace())
+                        && !move.getDestination().equals(game.getCentralPlace())){
+                    return true;
+                }
+            }
+
+            Piece destPiece = game.getPiece(move.getDestination());
+            if (destPiece == null){
+                return false;
+            }
+
+            int enemyPieces = 0;
+            for (Piece[] row : game.board){
+                for (Piece piece : row){
+                    if (piece != null && !piece.getPlayer().equals(game.currentPlayer)){
+                        enemyPieces++;
+                    }
+                }
+            }
+
+            if (enemyPieces == 1){
+                if (!destPiece.getPlayer().equals(game.currentPlayer)){
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private Move getBestGreedy() {
+            List<Move> knightGreedyMove = Arrays
+                    .stream(availableMoves)
+                    .filter(move -> game.getPiece(move.getSource()) instanceof Knight)
+                    .filter(this::greedyCheck)
+                    .collect(Collectors.toList());
+
+            if (knightGreedyMove.isEmpty()){
+                return null;
+            }
+
+            Move bestGreedy = knightGreedyMove.stream()
+                    .filter(this::easyCenterCheck)
+                    .min(Comparator.comparing(move -> getCenterDistance(move.getDestination())))
+                    .orElse(null);
+
+            if (bestGreedy != null){
+                return bestGreedy;
+            }
+
+            return knightGreedyMove.stream()
+                    .min(Comparator.comparing(move -> getCenterDistance(move.getDestination())))
+                    .orElse(null);
+        }
+
+        private boolean greedyCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            return getCenterDistance(move.getDestination()) < getCenterDistance(move.getSource());
+        }
+
+        private boolean easyCenterCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            return getCenterDistance(move.getDestination())%3 == 0;
+        }
+
+        private Move getCriticalCapture(){
+            return Arrays.stream(availableMoves)
+                    .filter(this::criticalCaptureCheck)
+                    .min(Comparator.comparing(this::moveDist))
+                    .orElse(null);
+        }
+
+        private boolean criticalCaptureCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            Place dest = move.getDestination();
+            Piece destPiece = game.getPiece(dest);
+            if (destPiece == null || destPiece.getPlayer().equals(game.currentPlayer)){
+                return false;
+            }
+
+            int distCenterX = Math.abs(move.getDestination().x() - game.getCentralPlace().x());
+            int distCenterY = Math.abs(move.getDestination().y() - game.getCentralPlace().y());
+
+            if ((distCenterX==1 && distCenterY==2) || (distCenterX==2 && distCenterY==1)){
+                if (!destPiece.getPlayer().equals(game.currentPlayer)){
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private Move getBestCapture(){
+            List<Move> captures = Arrays
+                    .stream(availableMoves)
+                    .filter(this::capturingCheck)
+                    .collect(Collectors.toList());
+            if (captures.isEmpty()){
+                return null;
+            }
+
+            Move bestCapture = captures.stream()
+                    .filter(this::captureKnightCheck)
+                    .min(Comparator.comparing(this::moveDist))
+                    .orElse(null);
+
+            if (bestCapture != null){
+                return bestCapture;
+            }
+
+            return captures.stream()
+                    .min(Comparator.comparing(this::moveDist))
+                    .orElse(null);
+        }
+
+        private boolean capturingCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            Place dest = move.getDestination();
+            Piece destPiece = game.getPiece(dest);
+            if (destPiece == null || destPiece.getPlayer().equals(game.currentPlayer)){
+                return false;
+            }
+
+            return true;
+        }
+
+        private boolean captureKnightCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            Place dest = move.getDestination();
+            Piece destPiece = game.getPiece(dest);
+            if (destPiece == null || destPiece.getPlayer().equals(game.currentPlayer)){
+                return false;
+            }
+
+            if (destPiece instanceof Knight){
+                return true;
+            }
+            return false;
+        }
+
+        private Move getBestBlocking(){
+            return Arrays.stream(availableMoves)
+                    .filter(this::blockingCheck)
+                    .min(Comparator.comparing(this::moveDist))
+                    .orElse(null);
+        }
+
+        private boolean blockingCheck(Move move){
+            if (move == null){
+                return false;
+            }
+            Place dest = move.getDestination();
+            int[] offsetX = {-1, 1, 0, 0};
+            int[] offsetY = {0, 0, -1, 1};
+            for (int i=0; i<offsetX.length; i++){
+                Piece adjPiece = game.getPiece(dest.x()+offsetX[i], dest.y()+offsetY[i]);
+                if (adjPiece !=null){
+                    if (adjPiece instanceof Knight &&
+                            !(adjPiece.getPlayer().equals(game.currentPlayer))){
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private int moveDist(Move move){
+            if (move == null
+                    || move.getSource() == null
+                    || move.getDestination() ==null){
+                return 99999999;
+            }
+            int xDist = Math.abs(move.getSource().x() - move.getDestination().x());
+            int yDist = Math.abs(move.getSource().y() - move.getDestination().y());
+            return Math.abs(xDist + yDist);
+        }
+
+        private int getCenterDistance(Place place){
+            if (place == null){
+                return 99999999;
+            }
+            Place center = game.getCentralPlace();
+            int xDist = Math.abs(place.x() - center.x());
+            int yDist = Math.abs(place.y() - center.y());
+            return Math.abs(xDist + yDist);
+        }
+    }
+
+    private static Piece randomPiece(Random random, Player player) {
+        return switch (random.nextInt(3)) {
+            case 0 -> new Knight(player);
+            case 1 -> new Archer(player);
+            default -> new MockPiece(player);
+        };
+    }
+
+    @Test
+    public void testRandomPositions() {
+        var random = new Random(3021);
+        for (int round = 0; round < 500; round++) {
+            var size = 3 + 2 * random.nextInt(7);
+            var players = new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+            var config = new Configuration(size, players, random.nextInt(3));
+            var game = new JesonMor(config);
+            // sparse positions make winning captures of the last enemy piece likely
+            var density = random.nextBoolean() ? 0.05 : random.nextDouble();
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (random.nextDouble() < density) {
+                        game.board[x][y] = randomPiece(random, players[random.nextInt(2)]);
+                    }
+                }
+            }
+            game.numMoves = random.nextInt(4);
+            game.currentPlayer = players[random.nextInt(2)];
+            var moves = Perft.generateMoves(game, Perft.RULE_FILTERED);
+            if (moves.length == 0) {
+                continue;
+            }
+            var seed = random.nextLong();
+            var expected = new LegacySmartStrategy(game, moves, new Random(seed)).getNextMove();
+            var strategy = new MakeMoveByStrategy(game, moves, Strategy.SMART);
+            strategy.setRandom(new Random(seed));
+            assertEquals(expected, strategy.getNextMove(), "round " + round + " on board of size " + size);
+        }
+    }
+
+    @Test
+    public void testFeatures() {
+        var players = new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+        var game = new JesonMor(new Configuration(5, players, 0));
+        game.board[2][2] = new Knight(players[0]);
+        game.board[0][1] = new Knight(players[1]);
+        game.board[3][1] = new Archer(players[0]);
+        game.currentPlayer = players[0];
+        var moves = new Move[]{new Move(2, 2, 0, 1), new Move(3, 1, 2, 1), new Move(3, 1, 1, 1)};
+        var features = SmartMoveFeatures.extract(game, moves);
+        assertEquals(3, features.size());
+        assertEquals(true, features.isWinning(0));
+        assertEquals(true, features.isCriticalCapture(0));
+        assertEquals(true, features.isKnightCapture(0));
+        assertEquals(3, features.getCenterDistanceDelta(0));
+        assertEquals(false, features.isWinning(1));
+        assertEquals(false, features.isCapture(1));
+        assertEquals(-1, features.getCenterDistanceDelta(1));
+        assertEquals(1, features.getMoveDistance(1));
+        assertEquals(false, features.isBlocking(1));
+        assertEquals(true, features.isBlocking(2));
+    }
+}
@@ -0,0 +1,210 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.player.ConsolePlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+    private static final int SIZE = 5;
+
+    /**
+     * Create a game with the pieces on the given squares (x * size + y), where pieces of even indexes are knights and
+     * the others are archers, and pieces of the first half belong to the first player.
+     */
+    private static JesonMor createGame(int numMovesProtection, int currentPlayer, int... squares) {
+        var players = new Player[]{new ConsolePlayer("White", Color.WHITE), new ConsolePlayer("Black", Color.BLACK)};
+        var configuration = new Configuration(SIZE, players, numMovesProtection, 1, 1);
+        var game = new JesonMor(configuration);
+        // pieces are put on the gameboard directly, since no initial piece can be on the central place
+        game.board = new Piece[SIZE][SIZE];
+        for (int i = 0; i < squares.length; i++) {
+            var player = players[i < (squares.length + 1) / 2 ? 0 : 1];
+            var piece = i % 2 == 0 ? new Knight(player) : new Archer(player);
+            game.setPiece(squares[i] / SIZE, squares[i] % SIZE, piece);
+        }
+        game.currentPlayer = players[currentPlayer];
+        return game;
+    }
+
+    private static JesonMor createRandomGame(Random random) {
+        var squares = new int[2 + random.nextInt(2)];
+        var occupied = new boolean[SIZE * SIZE];
+        for (int i = 0; i < squares.length; i++) {
+            do {
+                squares[i] = random.nextInt(SIZE * SIZE);
+            } while (occupied[squares[i]]);
+            occupied[squares[i]] = true;
+        }
+        return createGame(0, random.nextInt(2), squares);
+    }
+
+    @Test
+    public void testKnightOnCentralPlaceWins() {
+        var tablebase = Tablebase.getDefault(SIZE);
+        assertEquals(3, tablebase.getMaxPieces());
+        var game = createGame(0, 0, 12, 0);
+        assertEquals(1, tablebase.probe(game));
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var bestMoves = tablebase.bestMoves(game, moves);
+        assertNotNull(bestMoves);
+        assertEquals(1, bestMoves.length);
+        assertEquals(new Place(2, 2), bestMoves[0].getSource());
+
+        // the tables do not cover the protection window, other sizes or too many pieces
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(createGame(1, 0, 12, 0)));
+        assertEquals(Tablebase.NOT_FOUND, Tablebase.getDefault(3).probe(createGame(0, 0, 12, 0)));
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(createGame(0, 0, 12, 1, 0, 3)));
+    }
+
+    @Test
+    public void testDefaultTablebasesAreOnClassPath() {
+        // the resources are only in the output if src/main/resources is a resource root of the module
+        for (var size : Tablebase.DEFAULT_SIZES) {
+            var resource = "tablebase-" + size + ".bin";
+            assertNotNull(Tablebase.class.getResource(resource), resource + " is not on the class path");
+            assertEquals(3, Tablebase.getDefault(size).getMaxPieces(), resource);
+            assertTrue(Tablebase.getDefault(size).getNumTables() > 0, resource);
+        }
+    }
+
+    @Test
+    public void testDefaultTablebaseOfSize7() {
+        var tablebase = Tablebase.getDefault(7);
+        assertEquals(3, tablebase.getMaxPieces());
+        var players = new Player[]{new ConsolePlayer("White", Color.WHITE), new ConsolePlayer("Black", Color.BLACK)};
+        var game = new JesonMor(new Configuration(7, players, 0, 1, 1));
+        game.board = new Piece[7][7];
+        game.setPiece(3, 3, new Knight(players[0]));
+        game.setPiece(0, 0, new Archer(players[1]));
+        game.currentPlayer = players[0];
+        assertEquals(1, tablebase.probe(game));
+        game.currentPlayer = players[1];
+        game.numMoves = 1;
+        assertTrue(Tablebase.isLoss(tablebase.probe(game)));
+    }
+
+    @Test
+    public void testValuesAreConsistentWithMoves() {
+        var tablebase = Tablebase.getDefault(SIZE);
+        var random = new Random(3021);
+        for (int round = 0; round < 500; round++) {
+            var game = createRandomGame(random);
+            var value = tablebase.probe(game);
+            assertNotEquals(Tablebase.NOT_FOUND, value);
+            var player = game.getCurrentPlayerID();
+            var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+            var fastestWin = Integer.MAX_VALUE;
+            var slowestLoss = 0;
+            var allLose = moves.length > 0;
+            for (var move : moves) {
+                var source = move.getSource();
+                if (game.getPiece(source) instanceof Knight && game.isCentralPlace(source.x(), source.y())
+                        || game.getPiece(move.getDestination()) != null
+                        && game.getPieceIndex().getCount(1 - player) == 1) {
+                    fastestWin = 1;
+                    allLose = false;
+                    continue;
+                }
+                var token = game.makeMove(move);
+                var childValue = tablebase.probe(game);
+                game.unmakeMove(token);
+                if (Tablebase.isLoss(childValue)) {
+                    fastestWin = Math.min(fastestWin, Tablebase.distanceOf(childValue) + 1);
+                }
+                if (Tablebase.isWin(childValue)) {
+                    slowestLoss = Math.max(slowestLoss, childValue + 1);
+                } else {
+                    allLose = false;
+                }
+            }
+            if (Tablebase.isWin(value)) {
+                assertEquals(fastestWin, value, game.toString());
+            } else if (Tablebase.isLoss(value)) {
+                assertTrue(allLose, game.toString());
+                assertEquals(slowestLoss, Tablebase.distanceOf(value), game.toString());
+            } else {
+                assertEquals(Tablebase.DRAW, value);
+                assertEquals(Integer.MAX_VALUE, fastestWin, game.toString());
+                // a position without available moves is a draw, since the result depends on the scores
+                assertTrue(moves.length == 0 || !allLose, game.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testGenerationResumesFromWorkDirectory() throws IOException {
+        var workDirectory = Files.createTempDirectory("tablebase");
+        var path = workDirectory.resolve("tablebase.bin");
+        try {
+            var generator = new TablebaseGenerator(SIZE, 1, 1, 2, workDirectory);
+            generator.generate(2);
+            var defaultTablebase = Tablebase.getDefault(SIZE);
+            var material = Tablebase.materialOf(1, 0, 0, 1);
+            var table = generator.getTables().get(material);
+            var game = createGame(0, 1, 12, 0);
+            assertEquals(defaultTablebase.probe(game), table[Tablebase.indexOf(game)] & 0xFF);
+
+            // a finished table is loaded instead of being generated again
+            var file = workDirectory.resolve("5-1-1-K-A.tbl");
+            var changed = table.clone();
+            Arrays.fill(changed, (byte) Tablebase.DRAW);
+            Files.write(file, changed);
+            var resumed = new TablebaseGenerator(SIZE, 1, 1, 2, workDirectory);
+            var reported = new ArrayList<String>();
+            resumed.setProgressListener((name, millis) -> reported.add(name));
+            resumed.generate(2);
+            assertArrayEquals(changed, resumed.getTables().get(material));
+            assertEquals(generator.getTables().keySet(), resumed.getTables().keySet());
+            assertEquals(resumed.getTables().size(), reported.size());
+            assertTrue(reported.contains("K-A"));
+
+            generator.write(path);
+            var tablebase = Tablebase.load(path);
+            assertEquals(generator.getTables().size(), tablebase.getNumTables());
+            assertEquals(2, tablebase.getMaxPieces());
+            assertEquals(defaultTablebase.probe(game), tablebase.probe(game));
+
+            Files.write(path, Arrays.copyOf(Files.readAllBytes(path), Tablebase.HEADER_BYTES + 20));
+            assertThrows(IllegalArgumentException.class, () -> Tablebase.load(path));
+        } finally {
+            try (var files = Files.walk(workDirectory)) {
+                for (var file : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testComputerPlayerFollowsTablebase() {
+        var tablebase = Tablebase.getDefault(SIZE);
+        var player = new ComputerPlayer("White", Color.WHITE, Strategy.SMART);
+        var random = new Random(1);
+        var found = 0;
+        for (int round = 0; round < 10_000 && found < 20; round++) {
+            var game = createRandomGame(random);
+            var value = tablebase.probe(game);
+            if (!Tablebase.isWin(value) || value < 3) {
+                continue;
+            }
+            found++;
+            // the shortest win is kept, which a heuristic strategy alone does not find
+            game.makeMove(player.nextMove(game, Perft.generateMoves(game, Perft.PIECE_MOVES)));
+            assertEquals(Tablebase.LOSS + value - 1, tablebase.probe(game), game.toString());
+        }
+        assertEquals(20, found);
+    }
+}
@@ -0,0 +1,70 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.player.ConsolePlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+/**
+ * Games shared by the tests of moves, evaluation and search.
+ * It is in this package rather than {@code castle.comp3021.assignment.util}, since it sets protected fields of
+ * {@link Game}.
+ */
+final class TestGames {
+    private TestGames() {
+    }
+
+    /**
+     * Create a game at the starting position of a configuration, with the first player to move.
+     *
+     * @param configuration the configuration, whose initial pieces are set
+     * @return the game
+     */
+    static JesonMor createGame(Configuration configuration) {
+        configuration.setAllInitialPieces();
+        var game = new JesonMor(configuration);
+        game.currentPlayer = configuration.getPlayers()[0];
+        return game;
+    }
+
+    /**
+     * @return two new mock players, of the default colors of the first and the second player
+     */
+    static Player[] createMockPlayers() {
+        return new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+    }
+
+    /**
+     * @param size size of the gameboard
+     * @return a game at the starting position between two mock players, protected for the first move
+     */
+    static JesonMor createGame(int size) {
+        return createGame(new Configuration(size, createMockPlayers(), 1));
+    }
+
+    /**
+     * @param size size of the gameboard
+     * @return a game at the starting position between "White" and "Black" with the critical region of the default
+     * {@link OpeningBook}
+     */
+    static JesonMor createBookGame(int size) {
+        var players = new Player[]{new ConsolePlayer("White", Color.WHITE), new ConsolePlayer("Black", Color.BLACK)};
+        return createGame(new Configuration(size, players, 1, 1, 1));
+    }
+
+    /**
+     * Create a game with an empty gameboard after the protection window, with the first player to move.
+     * Pieces are put on the gameboard directly by the tests.
+     *
+     * @param size    size of the gameboard
+     * @param player1 the first player
+     * @param player2 the second player
+     * @return the game
+     */
+    static JesonMor createEmptyGame(int size, Player player1, Player player2) {
+        var game = new JesonMor(new Configuration(size, new Player[]{player1, player2}, 1));
+        game.board = new Piece[size][size];
+        game.numMoves = 2;
+        game.currentPlayer = player1;
+        return game;
+    }
+}
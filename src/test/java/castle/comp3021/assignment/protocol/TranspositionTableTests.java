@@ -0,0 +1,73 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTests {
+    @Test
+    public void testStoreAndProbe() {
+        var table = new TranspositionTable(4);
+        table.store(0x1234_5678_9ABC_DEF0L, 7, TranspositionTable.UPPER_BOUND, -123456, 675, 0);
+        var entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertNotEquals(TranspositionTable.MISS, entry);
+        assertEquals(7, TranspositionTable.depthOf(entry));
+        assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.boundOf(entry));
+        assertEquals(-123456, TranspositionTable.scoreOf(entry));
+        assertEquals(675, TranspositionTable.fromOf(entry));
+        assertEquals(0, TranspositionTable.toOf(entry));
+        assertEquals(1, table.getHits());
+
+        assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9ABC_DEF1L));
+        assertEquals(0, table.getCollisions());
+    }
+
+    @Test
+    public void testDepthPreferredReplacement() {
+        var table = new TranspositionTable(4);
+        long first = 0x10;
+        long second = 0x20;
+        table.store(first, 5, TranspositionTable.EXACT, 1, 0, 1);
+        // another position in the same slot with a shallower result does not replace the entry
+        table.store(second, 3, TranspositionTable.EXACT, 2, 0, 1);
+        assertEquals(TranspositionTable.MISS, table.probe(second));
+        assertEquals(1, table.getCollisions());
+        assertEquals(1, TranspositionTable.scoreOf(table.probe(first)));
+        // a deeper result replaces it
+        table.store(second, 6, TranspositionTable.EXACT, 2, 0, 1);
+        assertEquals(2, TranspositionTable.scoreOf(table.probe(second)));
+        // the same position is always replaced
+        table.store(second, 1, TranspositionTable.LOWER_BOUND, 3, 0, 1);
+        assertEquals(3, TranspositionTable.scoreOf(table.probe(second)));
+
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(second));
+        assertEquals(0, table.getHits());
+    }
+
+    /**
+     * Searching the same position again should reuse the results of the game's table.
+     */
+    @Test
+    public void testSearchUsesGameTable() {
+        var players = new Player[]{new MockPlayer(Color.PURPLE), new MockPlayer(Color.YELLOW)};
+        var config = new Configuration(7, players, 1);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        game.currentPlayer = players[0];
+        var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+        var search = new AlphaBetaSearch(game, 10_000);
+        search.setMaxDepth(3);
+        var move = search.search(moves);
+        var table = game.getTranspositionTable();
+        assertTrue(table.getStores() > 0);
+        var nodes = search.getNodes();
+        var hits = table.getHits();
+
+        assertEquals(move, search.search(moves));
+        assertTrue(table.getHits() > hits);
+        assertTrue(search.getNodes() < nodes, search.getNodes() + " >= " + nodes);
+    }
+}
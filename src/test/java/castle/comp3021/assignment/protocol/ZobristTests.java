@@ -0,0 +1,74 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZobristTests {
+    /**
+     * The incremental hash should always equal the hash recomputed from scratch, when moves are made and taken back
+     * in random order.
+     */
+    @Test
+    public void testIncrementalHashMatchesRecomputation() {
+        var random = new Random(3021);
+        for (int size = 5; size <= 25; size += 2) {
+            var configuration = new Configuration(size, TestGames.createMockPlayers(), random.nextInt(5));
+            var game = TestGames.createGame(configuration);
+            var history = new ArrayDeque<Object[]>();
+            var hashes = new ArrayDeque<Long>();
+            for (int step = 0; step < 200; step++) {
+                var moves = Perft.generateMoves(game, Perft.PIECE_MOVES);
+                if (history.isEmpty() || (moves.length > 0 && random.nextInt(4) != 0)) {
+                    if (moves.length == 0) {
+                        break;
+                    }
+                    var move = moves[random.nextInt(moves.length)];
+                    var captured = game.getPiece(move.getDestination());
+                    hashes.push(game.getPositionHash());
+                    history.push(new Object[]{move, captured});
+                    game.setPiece(move.getDestination().x(), move.getDestination().y(), game.getPiece(move.getSource()));
+                    game.setPiece(move.getSource().x(), move.getSource().y(), null);
+                    game.numMoves++;
+                } else {
+                    var entry = history.pop();
+                    var move = (Move) entry[0];
+                    game.numMoves--;
+                    game.setPiece(move.getSource().x(), move.getSource().y(), game.getPiece(move.getDestination()));
+                    game.setPiece(move.getDestination().x(), move.getDestination().y(), (Piece) entry[1]);
+                    assertEquals(hashes.pop(), game.getPositionHash());
+                }
+                assertEquals(Zobrist.computeHash(game), game.getPositionHash(), "size " + size + " step " + step);
+            }
+        }
+    }
+
+    @Test
+    public void testHashDistinguishesState() {
+        var game = TestGames.createGame(new Configuration(5, TestGames.createMockPlayers(), 2));
+        var initial = game.getPositionHash();
+        game.numMoves = 2;
+        var afterProtection = game.getPositionHash();
+        assertNotEquals(initial, afterProtection);
+        game.numMoves = 3;
+        assertNotEquals(afterProtection, game.getPositionHash());
+        game.numMoves = 4;
+        assertEquals(afterProtection, game.getPositionHash());
+
+        // the same pieces in another game have the same hash
+        var other = TestGames.createGame(new Configuration(5, TestGames.createMockPlayers(), 2));
+        other.numMoves = 4;
+        assertEquals(afterProtection, other.getPositionHash());
+
+        // replacing the board directly is picked up
+        game.board = new Piece[5][5];
+        game.board[0][0] = new Knight(game.getConfiguration().getPlayers()[0]);
+        game.board[4][4] = new Archer(game.getConfiguration().getPlayers()[1]);
+        assertEquals(Zobrist.computeHash(game), game.getPositionHash());
+    }
+}